@@ -4,8 +4,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 
 import com.iisquare.smh.core.component.CController;
+import com.iisquare.smh.frame.cache.CacheManager;
+import com.iisquare.smh.frame.metrics.RequestMetrics;
+import com.iisquare.smh.frame.process.ProcessRunner;
 import com.iisquare.smh.service.admin.TestService;
 
 /**
@@ -21,12 +25,37 @@ public class IndexController extends CController {
 	TestService testService;
 	@Autowired
 	com.iisquare.smh.service.index.TestService indexService;
+	@Autowired
+	RequestMetrics requestMetrics;
 	
 	@RequestMapping(value="/admin")
 	public String indexAction() throws Exception {
 		return displayTemplate();
 	}
 	
+	/* 请求耗时统计 */
+	public String metricsAction() throws Exception {
+		return displayMessage(0, requestMetrics.snapshot());
+	}
+	
+	/* 清空请求耗时统计，仅接受POST请求，返回清空前的统计信息 */
+	@RequestMapping(value="/admin/index/metricsReset", method=RequestMethod.POST)
+	public String metricsResetAction() throws Exception {
+		Object snapshot = requestMetrics.snapshot();
+		requestMetrics.reset();
+		return displayMessage(0, snapshot);
+	}
+	
+	/* 缓存区域统计 */
+	public String cacheAction() throws Exception {
+		return displayMessage(0, CacheManager.getInstance().stats());
+	}
+	
+	/* 外部进程执行统计 */
+	public String processAction() throws Exception {
+		return displayMessage(0, ProcessRunner.getInstance().stats());
+	}
+	
 	/* 多模块协作示例 */
 	public String conflictAction() throws Exception {
 		assign("testService", testService.conflict());
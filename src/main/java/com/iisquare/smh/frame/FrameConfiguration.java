@@ -1,18 +1,28 @@
 package com.iisquare.smh.frame;
 
-import java.util.Hashtable;
-import java.util.Map;
+import java.util.Set;
 
-public class FrameConfiguration {
+import com.iisquare.smh.frame.cache.CacheManager;
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+import com.iisquare.smh.frame.config.ConfigListener;
+import com.iisquare.smh.frame.config.ConfigSnapshot;
+
+/**
+ * 框架配置，注册为ConfigService的监听器后，主题名称及时间格式随config.properties的修改生效
+ */
+public class FrameConfiguration implements ConfigListener {
 
-	private static Map<String, Object> cache = new Hashtable<String, Object>(0); // 虚拟缓存
 	private String modulePrefix = "com.iisquare.smh.action."; // 模块包前缀
 	private String controllerSuffix = "Controller"; // 控制器名称后缀
 	private String actionSuffix = "Action"; // 方法名称后缀
 	private String skinFolder = "skin"; // 主题资源所在目录
-	private String themeName = "default"; // 主题名称，留空为不区分主题
-	private String dateTimeFormat = "yyyy-MM-dd HH:mm:ss"; // 时间日志格式
+	private volatile String themeName = "default"; // 主题名称，留空为不区分主题
+	private volatile String dateTimeFormat = "yyyy-MM-dd HH:mm:ss"; // 时间日志格式
 	private String sessionName = "JSESSIONID"; // 服务器环境的SESSIONID
+	private boolean leanViewModel = false; // 精简视图模型，仅输出_FRAME_和assign参数
+	private boolean exposeRequest = false; // 精简视图模型中允许访问_FRAME_.REQUEST和_FRAME_.SESSION
+	private boolean strongETag = false; // 根据输出内容生成ETag，支持条件请求返回304
+	private OutputCacheManager outputCacheManager; // 主题变更时清空页面缓存
 	
 	public String getModulePrefix() {
 		return modulePrefix;
@@ -70,19 +80,65 @@ public class FrameConfiguration {
 		this.sessionName = sessionName;
 	}
 
+	public boolean isLeanViewModel() {
+		return leanViewModel;
+	}
+
+	public void setLeanViewModel(boolean leanViewModel) {
+		this.leanViewModel = leanViewModel;
+	}
+
+	public boolean isExposeRequest() {
+		return exposeRequest;
+	}
+
+	public void setExposeRequest(boolean exposeRequest) {
+		this.exposeRequest = exposeRequest;
+	}
+
+	public boolean isStrongETag() {
+		return strongETag;
+	}
+
+	public void setStrongETag(boolean strongETag) {
+		this.strongETag = strongETag;
+	}
+
+	public OutputCacheManager getOutputCacheManager() {
+		return outputCacheManager;
+	}
+
+	public void setOutputCacheManager(OutputCacheManager outputCacheManager) {
+		this.outputCacheManager = outputCacheManager;
+	}
+
 	public FrameConfiguration() {
 		
 	}
 	
+	@Override
+	public void onChange(ConfigSnapshot previous, ConfigSnapshot current, Set<String> keys) {
+		if(keys.contains("config.theme_name")) {
+			String name = current.get("config.theme_name", "");
+			if(!name.equals(themeName)) {
+				themeName = name;
+				if(null != outputCacheManager) outputCacheManager.clear(); // 已缓存的页面含有旧主题的地址
+			}
+		}
+		if(keys.contains("config.datetime_format")) dateTimeFormat = current.get("config.datetime_format", dateTimeFormat);
+	}
+	
+	/**
+	 * 读取CacheManager默认区域中的缓存，保留用于兼容
+	 */
 	public static Object get(String key) {
-		return cache.get(key);
+		return CacheManager.getInstance().<String, Object>getCache(CacheManager.DEFAULT_REGION).get(key);
 	}
 	
+	/**
+	 * 写入CacheManager默认区域，value为null时移除
+	 */
 	public static void put(String key, Object value) {
-		if(null == value) {
-			cache.remove(key);
-		} else {
-			cache.put(key, value);
-		}
+		CacheManager.getInstance().<String, Object>getCache(CacheManager.DEFAULT_REGION).put(key, value);
 	}
 }
@@ -0,0 +1,15 @@
+package com.iisquare.smh.frame.cache;
+
+/**
+ * 缓存加载器，缓存未命中时调用，同一键同时只会执行一次
+ */
+public interface CacheLoader<K, V> {
+
+	/**
+	 * 加载缓存值
+	 * @param key 缓存键
+	 * @return 返回null时不写入缓存
+	 * @throws Exception
+	 */
+	V load(K key) throws Exception;
+}
@@ -0,0 +1,161 @@
+package com.iisquare.smh.frame.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * 缓存区域管理，按名称获取LocalCache
+ * 区域可通过regions配置，格式为“maxSize=1000,maxWeight=0,ttl=60”，ttl单位为秒
+ * 未配置的区域采用defaultMaxSize及defaultTtl创建
+ */
+public class CacheManager implements InitializingBean, DisposableBean {
+
+	public static final String DEFAULT_REGION = "default";
+	private static volatile CacheManager instance = new CacheManager(); // 当前启用的缓存管理器
+	private final ConcurrentHashMap<String, LocalCache<Object, Object>> caches = new ConcurrentHashMap<String, LocalCache<Object, Object>>();
+	private Map<String, String> regions; // 区域配置
+	private int defaultMaxSize = 10000; // 未配置区域的最大缓存条数
+	private int defaultTtl = 0; // 未配置区域的有效时间，单位秒，0为永不过期
+	private int cleanUpInterval = 60; // 定时清理过期缓存项的间隔，单位秒，0为不清理
+	private ScheduledExecutorService scheduler;
+
+	public static CacheManager getInstance() {
+		return instance;
+	}
+
+	public Map<String, String> getRegions() {
+		return regions;
+	}
+
+	public void setRegions(Map<String, String> regions) {
+		this.regions = regions;
+	}
+
+	public int getDefaultMaxSize() {
+		return defaultMaxSize;
+	}
+
+	public void setDefaultMaxSize(int defaultMaxSize) {
+		this.defaultMaxSize = defaultMaxSize;
+	}
+
+	public int getDefaultTtl() {
+		return defaultTtl;
+	}
+
+	public void setDefaultTtl(int defaultTtl) {
+		this.defaultTtl = defaultTtl;
+	}
+
+	public int getCleanUpInterval() {
+		return cleanUpInterval;
+	}
+
+	public void setCleanUpInterval(int cleanUpInterval) {
+		this.cleanUpInterval = cleanUpInterval;
+	}
+
+	public CacheManager() {
+
+	}
+
+	/**
+	 * 获取缓存区域，不存在时按配置创建
+	 */
+	@SuppressWarnings("unchecked")
+	public <K, V> LocalCache<K, V> getCache(String name) {
+		LocalCache<Object, Object> cache = caches.get(name);
+		if(null == cache) {
+			cache = create(name, null);
+			LocalCache<Object, Object> exists = caches.putIfAbsent(name, cache);
+			if(null != exists) cache = exists;
+		}
+		return (LocalCache<K, V>) cache;
+	}
+
+	/**
+	 * 获取缓存区域，不存在时按配置创建并采用指定的权重计算
+	 */
+	@SuppressWarnings("unchecked")
+	public <K, V> LocalCache<K, V> getCache(String name, CacheWeigher<? super K, ? super V> weigher) {
+		LocalCache<Object, Object> cache = caches.get(name);
+		if(null == cache) {
+			cache = create(name, (CacheWeigher<Object, Object>) weigher);
+			LocalCache<Object, Object> exists = caches.putIfAbsent(name, cache);
+			if(null != exists) cache = exists;
+		}
+		return (LocalCache<K, V>) cache;
+	}
+
+	private LocalCache<Object, Object> create(String name, CacheWeigher<Object, Object> weigher) {
+		int maxSize = defaultMaxSize;
+		long maxWeight = 0;
+		long ttl = defaultTtl;
+		String spec = null == regions ? null : regions.get(name);
+		if(null != spec) {
+			for (String item : spec.split(",")) {
+				int index = item.indexOf('=');
+				if(-1 == index) continue;
+				String key = item.substring(0, index).trim();
+				long value = Long.parseLong(item.substring(index + 1).trim());
+				if("maxSize".equals(key)) {
+					maxSize = (int) value;
+				} else if("maxWeight".equals(key)) {
+					maxWeight = value;
+				} else if("ttl".equals(key)) {
+					ttl = value;
+				} else {
+					throw new IllegalArgumentException("unknown cache option " + key + " of " + name);
+				}
+			}
+		}
+		return new LocalCache<Object, Object>(name, maxSize, maxWeight, ttl * 1000, weigher);
+	}
+
+	/**
+	 * 获取全部区域的统计信息
+	 */
+	public Map<String, Object> stats() {
+		Map<String, Object> map = new TreeMap<String, Object>();
+		for (Map.Entry<String, LocalCache<Object, Object>> item : caches.entrySet()) {
+			map.put(item.getKey(), item.getValue().stats());
+		}
+		return map;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if(null != regions) {
+			for (String name : regions.keySet()) getCache(name); // 启动时校验区域配置
+		}
+		instance = this;
+		if(cleanUpInterval < 1) return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "frame-cache-cleanup");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				for (LocalCache<Object, Object> cache : caches.values()) cache.cleanUp();
+			}
+		}, cleanUpInterval, cleanUpInterval, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if(null != scheduler) scheduler.shutdownNow();
+	}
+}
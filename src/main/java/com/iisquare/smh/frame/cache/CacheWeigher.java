@@ -0,0 +1,13 @@
+package com.iisquare.smh.frame.cache;
+
+/**
+ * 缓存项权重计算，用于按权重限制缓存大小，如按字节数
+ */
+public interface CacheWeigher<K, V> {
+
+	/**
+	 * 计算缓存项权重
+	 * @return 非负整数
+	 */
+	int weigh(K key, V value);
+}
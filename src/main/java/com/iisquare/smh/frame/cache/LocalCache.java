@@ -0,0 +1,325 @@
+package com.iisquare.smh.frame.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * 本地缓存区域，按键分段加锁，各分段独立执行LRU淘汰
+ * 支持最大条数、最大权重、缓存项独立的过期时间及加载器，同一键并发未命中时仅执行一次加载
+ * 条数及权重上限按分段均分，分段内严格按LRU淘汰，整体为近似LRU
+ */
+public class LocalCache<K, V> {
+
+	private final String name;
+	private final int maxSize; // 最大缓存条数，0为不限制
+	private final long maxWeight; // 最大权重，0为不限制
+	private final long ttl; // 默认有效时间，单位毫秒，0为永不过期
+	private final CacheWeigher<? super K, ? super V> weigher;
+	private final Segment<K, V>[] segments;
+	private final int segmentMask;
+	private final ConcurrentHashMap<K, FutureTask<V>> loading = new ConcurrentHashMap<K, FutureTask<V>>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loadSuccess = new LongAdder();
+	private final LongAdder loadFailure = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * 缓存节点
+	 */
+	static class Node<V> {
+		final V value;
+		final long expireTime; // 0为永不过期
+		final int weight;
+
+		Node(V value, long expireTime, int weight) {
+			this.value = value;
+			this.expireTime = expireTime;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * 缓存分段，按访问顺序排列
+	 */
+	@SuppressWarnings("serial")
+	static final class Segment<K, V> extends LinkedHashMap<K, Node<V>> {
+		final int maxSize;
+		final long maxWeight;
+		final LongAdder evictions; // 所属区域的淘汰计数
+		long weight;
+
+		Segment(int maxSize, long maxWeight, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+			this.maxWeight = maxWeight;
+			this.evictions = evictions;
+		}
+
+		void evict() {
+			Iterator<Node<V>> iterator = values().iterator();
+			while(iterator.hasNext() && ((maxSize > 0 && size() > maxSize) || (maxWeight > 0 && weight > maxWeight))) {
+				weight -= iterator.next().weight;
+				iterator.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * @param name 区域名称
+	 * @param maxSize 最大缓存条数，0为不限制
+	 * @param maxWeight 最大权重，0为不限制，需同时设置weigher
+	 * @param ttl 默认有效时间，单位毫秒，0为永不过期
+	 * @param weigher 权重计算，为null时每项权重为1
+	 */
+	public LocalCache(String name, int maxSize, long maxWeight, long ttl, CacheWeigher<? super K, ? super V> weigher) {
+		this.name = name;
+		this.maxSize = Math.max(0, maxSize);
+		this.maxWeight = Math.max(0, maxWeight);
+		this.ttl = Math.max(0, ttl);
+		this.weigher = weigher;
+		int count = 1; // 分段数为2的幂，容量较小时减少分段以保证LRU的准确性
+		while(count < 16 && (0 == this.maxSize || count * 64 <= this.maxSize)
+				&& (0 == this.maxWeight || count * 64 <= this.maxWeight)) count <<= 1;
+		segments = newSegments(count);
+		for (int i = 0; i < count; i++) {
+			int size = 0 == this.maxSize ? 0 : (this.maxSize + count - 1) / count;
+			long weight = 0 == this.maxWeight ? 0 : (this.maxWeight + count - 1) / count;
+			segments[i] = new Segment<K, V>(size, weight, evictions);
+		}
+		segmentMask = count - 1;
+	}
+
+	public LocalCache(String name, int maxSize, long ttl) {
+		this(name, maxSize, 0, ttl, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Segment<K, V>[] newSegments(int count) {
+		return (Segment<K, V>[]) new Segment<?, ?>[count];
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & segmentMask];
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 获取缓存值
+	 * @return 不存在或已过期时返回null
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Node<V> node = segment.get(key);
+			if(null != node) {
+				if(0 == node.expireTime || node.expireTime >= System.currentTimeMillis()) {
+					hits.increment();
+					return node.value;
+				}
+				segment.remove(key);
+				segment.weight -= node.weight;
+				expirations.increment();
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * 获取缓存值，未命中时通过加载器加载并写入缓存
+	 * 同一键并发未命中时，其他线程等待首个线程的加载结果
+	 * @throws Exception 加载器抛出的异常
+	 */
+	public V get(final K key, final CacheLoader<? super K, V> loader) throws Exception {
+		V value = get(key);
+		if(null != value) return value;
+		FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				long start = System.nanoTime();
+				try {
+					V value = loader.load(key);
+					loadSuccess.increment();
+					if(null != value) put(key, value);
+					return value;
+				} catch (Exception e) {
+					loadFailure.increment();
+					throw e;
+				} finally {
+					loadTime.add(System.nanoTime() - start);
+				}
+			}
+		});
+		FutureTask<V> exists = loading.putIfAbsent(key, task);
+		if(null == exists) {
+			try {
+				task.run();
+			} finally {
+				loading.remove(key, task);
+			}
+		} else {
+			task = exists;
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof Exception) throw (Exception) cause;
+			if(cause instanceof Error) throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * 写入缓存，采用默认有效时间
+	 */
+	public void put(K key, V value) {
+		put(key, value, ttl);
+	}
+
+	/**
+	 * 写入缓存
+	 * @param ttl 有效时间，单位毫秒，0为永不过期
+	 */
+	public void put(K key, V value, long ttl) {
+		if(null == value) {
+			remove(key);
+			return;
+		}
+		int weight = null == weigher ? 1 : Math.max(0, weigher.weigh(key, value));
+		Node<V> node = new Node<V>(value, ttl > 0 ? System.currentTimeMillis() + ttl : 0, weight);
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Node<V> old = segment.put(key, node);
+			if(null != old) segment.weight -= old.weight;
+			segment.weight += weight;
+			segment.evict();
+		}
+	}
+
+	/**
+	 * 移除缓存项
+	 * @return 原缓存值
+	 */
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Node<V> node = segment.remove(key);
+			if(null == node) return null;
+			segment.weight -= node.weight;
+			return node.value;
+		}
+	}
+
+	/**
+	 * 移除满足条件的缓存项，同时清理已过期的缓存项
+	 * @return 移除的条数，不含过期项
+	 */
+	public int removeIf(BiPredicate<? super K, ? super V> predicate) {
+		int count = 0;
+		long now = System.currentTimeMillis();
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				Iterator<Map.Entry<K, Node<V>>> iterator = segment.entrySet().iterator();
+				while(iterator.hasNext()) {
+					Map.Entry<K, Node<V>> entry = iterator.next();
+					Node<V> node = entry.getValue();
+					boolean expired = 0 != node.expireTime && node.expireTime < now;
+					if(!expired && !predicate.test(entry.getKey(), node.value)) continue;
+					iterator.remove();
+					segment.weight -= node.weight;
+					if(expired) {
+						expirations.increment();
+					} else {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 清理已过期的缓存项
+	 */
+	public void cleanUp() {
+		removeIf(new BiPredicate<K, V>() {
+			@Override
+			public boolean test(K key, V value) {
+				return false;
+			}
+		});
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+				segment.weight = 0;
+			}
+		}
+	}
+
+	/**
+	 * 缓存条数，包含尚未清理的过期项
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public long weight() {
+		long weight = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				weight += segment.weight;
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public Map<String, Object> stats() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		long hit = hits.sum(), miss = misses.sum();
+		map.put("size", size());
+		map.put("maxSize", maxSize);
+		if(maxWeight > 0) {
+			map.put("weight", weight());
+			map.put("maxWeight", maxWeight);
+		}
+		map.put("hits", hit);
+		map.put("misses", miss);
+		map.put("hitRate", 0 == hit + miss ? 0.0 : Math.round(hit * 10000.0 / (hit + miss)) / 10000.0);
+		map.put("loadSuccess", loadSuccess.sum());
+		map.put("loadFailure", loadFailure.sum());
+		long loads = loadSuccess.sum() + loadFailure.sum();
+		map.put("averageLoadMillis", 0 == loads ? 0.0 : Math.round(loadTime.sum() / 1000.0 / loads) / 1000.0);
+		map.put("evictions", evictions.sum());
+		map.put("expirations", expirations.sum());
+		return map;
+	}
+}
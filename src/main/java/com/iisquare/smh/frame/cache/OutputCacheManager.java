@@ -0,0 +1,202 @@
+package com.iisquare.smh.frame.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 页面及片段输出缓存
+ * 基于LocalCache分段存储，采用LRU策略限制缓存条数，每项具有独立的过期时间
+ * 可通过depends声明依赖的实体名称，DaoBase执行写操作时按实体名称失效
+ */
+public class OutputCacheManager {
+
+	private int maxSize = 1000; // 最大缓存条数
+	private boolean enabled = true; // 是否启用缓存
+	private volatile LocalCache<String, Entry> cache = new LocalCache<String, Entry>("output", maxSize, 0);
+
+	/**
+	 * 缓存项
+	 */
+	public static class Entry {
+		private final String content;
+		private final String contentType;
+		private final long expireTime;
+		private final String[] depends;
+		private final String[] vary;
+
+		public Entry(String content, String contentType, long expireTime, String[] depends) {
+			this(content, contentType, expireTime, depends, null);
+		}
+
+		public Entry(String content, String contentType, long expireTime, String[] depends, String[] vary) {
+			this.content = content;
+			this.contentType = contentType;
+			this.expireTime = expireTime;
+			this.depends = depends;
+			this.vary = vary;
+		}
+
+		public String getContent() {
+			return content;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public long getExpireTime() {
+			return expireTime;
+		}
+
+		public String[] getDepends() {
+			return depends;
+		}
+
+		/**
+		 * 生成缓存时响应的Vary头，命中缓存时原样输出
+		 */
+		public String[] getVary() {
+			return vary;
+		}
+	}
+
+	/**
+	 * 待写入的缓存凭据，由拦截器生成并存放在request属性中，视图渲染完成后写入
+	 */
+	public static class Ticket {
+		public static final String ATTRIBUTE_NAME = Ticket.class.getName();
+		private final OutputCacheManager manager;
+		private final String key;
+		private final int ttl;
+		private final String[] depends;
+
+		public Ticket(OutputCacheManager manager, String key, int ttl, String[] depends) {
+			this.manager = manager;
+			this.key = key;
+			this.ttl = ttl;
+			this.depends = depends;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public void store(String content, String contentType) {
+			manager.put(key, content, contentType, ttl, depends, null);
+		}
+
+		/**
+		 * 写入缓存，同时保存响应的内容类型及Vary头
+		 */
+		public void store(String content, HttpServletResponse response) {
+			Collection<String> vary = response.getHeaders("Vary");
+			manager.put(key, content, response.getContentType(), ttl, depends,
+					vary.isEmpty() ? null : vary.toArray(new String[vary.size()]));
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		cache = new LocalCache<String, Entry>("output", maxSize, 0);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public OutputCacheManager() {
+
+	}
+
+	/**
+	 * 获取缓存项
+	 * @param key 缓存键
+	 * @return 不存在或已过期时返回null
+	 */
+	public Entry get(String key) {
+		if(!enabled) return null;
+		return cache.get(key);
+	}
+
+	/**
+	 * 写入缓存项
+	 * @param key 缓存键
+	 * @param content 输出内容
+	 * @param contentType 内容类型
+	 * @param ttl 有效时间，单位秒
+	 * @param depends 依赖的实体名称
+	 */
+	public void put(String key, String content, String contentType, int ttl, String[] depends) {
+		put(key, content, contentType, ttl, depends, null);
+	}
+
+	/**
+	 * 写入缓存项
+	 * @param vary 响应的Vary头，可为null
+	 * @see #put(String, String, String, int, String[])
+	 */
+	public void put(String key, String content, String contentType, int ttl, String[] depends, String[] vary) {
+		if(!enabled || ttl < 1 || null == content) return;
+		Entry entry = new Entry(content, contentType, System.currentTimeMillis() + ttl * 1000L, depends, vary);
+		cache.put(key, entry, ttl * 1000L);
+	}
+
+	/**
+	 * 移除指定缓存项
+	 * @param key 缓存键
+	 */
+	public void remove(String key) {
+		cache.remove(key);
+	}
+
+	/**
+	 * 移除依赖指定实体的缓存项，同时清理已过期的缓存项
+	 * @param depend 实体名称
+	 * @return 移除的条数
+	 */
+	public int invalidate(final String depend) {
+		return cache.removeIf(new BiPredicate<String, Entry>() {
+			@Override
+			public boolean test(String key, Entry entry) {
+				return contains(entry.depends, depend);
+			}
+		});
+	}
+
+	/**
+	 * 清空全部缓存
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public Map<String, Object> stats() {
+		return cache.stats();
+	}
+
+	private boolean contains(String[] depends, String depend) {
+		if(null == depends) return false;
+		for (String item : depends) {
+			if(item.equals(depend)) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,39 @@
+package com.iisquare.smh.frame.cache;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * 将字符输出暂存在内存中，用于生成输出缓存
+ */
+public class OutputCacheResponseWrapper extends HttpServletResponseWrapper {
+
+	private StringWriter buffer = new StringWriter(1024);
+	private PrintWriter writer = new PrintWriter(buffer);
+
+	public OutputCacheResponseWrapper(HttpServletResponse response) {
+		super(response);
+	}
+
+	@Override
+	public PrintWriter getWriter() {
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() {
+		writer.flush();
+	}
+
+	/**
+	 * 获取已输出的内容
+	 * @return
+	 */
+	public String getContent() {
+		writer.flush();
+		return buffer.toString();
+	}
+}
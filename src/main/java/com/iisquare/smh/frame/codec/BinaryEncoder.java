@@ -0,0 +1,79 @@
+package com.iisquare.smh.frame.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 长度前缀二进制编码器，便于内部服务间解析
+ * 每个值以一个字节的类型标识开头，多字节数值均为大端序：
+ * 	'N' - null
+ * 	'T'/'F' - 布尔值
+ * 	'I' - 8字节整数
+ * 	'D' - 8字节浮点数
+ * 	'S' - 4字节长度 + UTF-8字符串
+ * 	'B' - 4字节长度 + 二进制数据
+ * 	'A' - 4字节元素个数 + 各元素
+ * 	'M' - 4字节键值对个数 + 交替的键（'S'）与值
+ */
+public class BinaryEncoder extends MessageEncoder {
+
+	private static final String[] MEDIA_TYPES = {"application/x-frame-binary"};
+
+	@Override
+	public String getContentType() {
+		return MEDIA_TYPES[0];
+	}
+
+	@Override
+	public String[] getMediaTypes() {
+		return MEDIA_TYPES;
+	}
+
+	@Override
+	protected void writeNil(DataOutputStream out) throws IOException {
+		out.writeByte('N');
+	}
+
+	@Override
+	protected void writeBoolean(DataOutputStream out, boolean value) throws IOException {
+		out.writeByte(value ? 'T' : 'F');
+	}
+
+	@Override
+	protected void writeLong(DataOutputStream out, long value) throws IOException {
+		out.writeByte('I');
+		out.writeLong(value);
+	}
+
+	@Override
+	protected void writeDouble(DataOutputStream out, double value) throws IOException {
+		out.writeByte('D');
+		out.writeDouble(value);
+	}
+
+	@Override
+	protected void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+		out.writeByte('S');
+		out.writeInt(utf8.length);
+		out.write(utf8);
+	}
+
+	@Override
+	protected void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		out.writeByte('B');
+		out.writeInt(value.length);
+		out.write(value);
+	}
+
+	@Override
+	protected void writeArrayHeader(DataOutputStream out, int size) throws IOException {
+		out.writeByte('A');
+		out.writeInt(size);
+	}
+
+	@Override
+	protected void writeMapHeader(DataOutputStream out, int size) throws IOException {
+		out.writeByte('M');
+		out.writeInt(size);
+	}
+}
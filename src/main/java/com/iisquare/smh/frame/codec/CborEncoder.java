@@ -0,0 +1,92 @@
+package com.iisquare.smh.frame.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * CBOR（RFC 7049）编码器，仅输出定长结构
+ */
+public class CborEncoder extends MessageEncoder {
+
+	private static final String[] MEDIA_TYPES = {"application/cbor"};
+	private static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3, ARRAY = 4, MAP = 5;
+
+	@Override
+	public String getContentType() {
+		return MEDIA_TYPES[0];
+	}
+
+	@Override
+	public String[] getMediaTypes() {
+		return MEDIA_TYPES;
+	}
+
+	/**
+	 * 写入类型头，value按无符号数处理
+	 */
+	private void writeHeader(DataOutputStream out, int major, long value) throws IOException {
+		int type = major << 5;
+		if(value >= 0 && value < 24) {
+			out.writeByte(type | (int) value);
+		} else if(value >= 0 && value < 256) {
+			out.writeByte(type | 24);
+			out.writeByte((int) value);
+		} else if(value >= 0 && value < 65536) {
+			out.writeByte(type | 25);
+			out.writeShort((int) value);
+		} else if(value >= 0 && value < 4294967296L) {
+			out.writeByte(type | 26);
+			out.writeInt((int) value);
+		} else {
+			out.writeByte(type | 27);
+			out.writeLong(value);
+		}
+	}
+
+	@Override
+	protected void writeNil(DataOutputStream out) throws IOException {
+		out.writeByte(0xf6);
+	}
+
+	@Override
+	protected void writeBoolean(DataOutputStream out, boolean value) throws IOException {
+		out.writeByte(value ? 0xf5 : 0xf4);
+	}
+
+	@Override
+	protected void writeLong(DataOutputStream out, long value) throws IOException {
+		if(value >= 0) {
+			writeHeader(out, UNSIGNED, value);
+		} else {
+			writeHeader(out, NEGATIVE, ~value); // -1 - value
+		}
+	}
+
+	@Override
+	protected void writeDouble(DataOutputStream out, double value) throws IOException {
+		out.writeByte(0xfb);
+		out.writeDouble(value);
+	}
+
+	@Override
+	protected void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+		writeHeader(out, TEXT, utf8.length);
+		out.write(utf8);
+	}
+
+	@Override
+	protected void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		writeHeader(out, BYTES, value.length);
+		out.write(value);
+	}
+
+	@Override
+	protected void writeArrayHeader(DataOutputStream out, int size) throws IOException {
+		writeHeader(out, ARRAY, size);
+	}
+
+	@Override
+	protected void writeMapHeader(DataOutputStream out, int size) throws IOException {
+		writeHeader(out, MAP, size);
+	}
+}
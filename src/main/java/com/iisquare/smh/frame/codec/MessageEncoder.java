@@ -0,0 +1,191 @@
+package com.iisquare.smh.frame.codec;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+/**
+ * 二进制消息编码器，将displayJSON的输出对象直接序列化至输出流
+ * 支持Map、Collection、数组、数值、字符串、布尔值及枚举，其他对象按JSON规则转换为Map后输出
+ * 日期输出为毫秒数，byte[]输出为二进制数据
+ */
+public abstract class MessageEncoder {
+
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int MAX_DEPTH = 64; // 最大嵌套层数，避免循环引用导致栈溢出
+	private static final MessageEncoder[] encoders = {
+		new MessagePackEncoder(), new CborEncoder(), new BinaryEncoder()
+	};
+
+	/**
+	 * 输出的Content-Type
+	 */
+	public abstract String getContentType();
+
+	/**
+	 * 可接受的媒体类型，第一个与getContentType一致
+	 */
+	public abstract String[] getMediaTypes();
+
+	protected abstract void writeNil(DataOutputStream out) throws IOException;
+
+	protected abstract void writeBoolean(DataOutputStream out, boolean value) throws IOException;
+
+	protected abstract void writeLong(DataOutputStream out, long value) throws IOException;
+
+	protected abstract void writeDouble(DataOutputStream out, double value) throws IOException;
+
+	protected abstract void writeString(DataOutputStream out, byte[] utf8) throws IOException;
+
+	protected abstract void writeBytes(DataOutputStream out, byte[] value) throws IOException;
+
+	protected abstract void writeArrayHeader(DataOutputStream out, int size) throws IOException;
+
+	protected abstract void writeMapHeader(DataOutputStream out, int size) throws IOException;
+
+	/**
+	 * 编码并写入输出流，完成后仅刷新不关闭输出流
+	 */
+	public void encode(Object value, OutputStream out) throws IOException {
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out, 8192));
+		write(stream, value, 0);
+		stream.flush();
+	}
+
+	protected void write(DataOutputStream out, Object value, int depth) throws IOException {
+		if(depth > MAX_DEPTH) throw new IOException("message nesting exceeds " + MAX_DEPTH);
+		if(null == value || value instanceof JSONNull) {
+			writeNil(out);
+		} else if(value instanceof String) {
+			writeString(out, ((String) value).getBytes(UTF8));
+		} else if(value instanceof Boolean) {
+			writeBoolean(out, (Boolean) value);
+		} else if(value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte) {
+			writeLong(out, ((Number) value).longValue());
+		} else if(value instanceof BigInteger) {
+			BigInteger number = (BigInteger) value;
+			if(number.bitLength() < 64) {
+				writeLong(out, number.longValue());
+			} else {
+				writeString(out, number.toString().getBytes(UTF8));
+			}
+		} else if(value instanceof BigDecimal || value instanceof Number) {
+			writeDouble(out, ((Number) value).doubleValue());
+		} else if(value instanceof CharSequence || value instanceof Character) {
+			writeString(out, value.toString().getBytes(UTF8));
+		} else if(value instanceof Enum) {
+			writeString(out, ((Enum<?>) value).name().getBytes(UTF8));
+		} else if(value instanceof Date) {
+			writeLong(out, ((Date) value).getTime());
+		} else if(value instanceof byte[]) {
+			writeBytes(out, (byte[]) value);
+		} else if(value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			writeMapHeader(out, map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeString(out, String.valueOf(entry.getKey()).getBytes(UTF8));
+				write(out, entry.getValue(), depth + 1);
+			}
+		} else if(value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			writeArrayHeader(out, collection.size());
+			for (Object item : collection) {
+				write(out, item, depth + 1);
+			}
+		} else if(value instanceof Iterable) {
+			List<Object> list = new ArrayList<Object>();
+			for (Object item : (Iterable<?>) value) list.add(item);
+			write(out, list, depth);
+		} else if(value.getClass().isArray()) {
+			int length = Array.getLength(value);
+			writeArrayHeader(out, length);
+			for (int i = 0; i < length; i++) {
+				write(out, Array.get(value, i), depth + 1);
+			}
+		} else {
+			write(out, JSONObject.fromObject(value), depth);
+		}
+	}
+
+	/**
+	 * 根据Accept请求头选择编码器
+	 * 按q值选取优先级最高的媒体类型，相同时按出现顺序，通配符视为JSON
+	 * @param accept Accept请求头
+	 * @return 应输出JSON时返回null
+	 */
+	public static MessageEncoder negotiate(String accept) {
+		if(null == accept || accept.length() < 1) return null;
+		MessageEncoder best = null;
+		int bestQuality = -1;
+		int length = accept.length();
+		int start = 0;
+		while(start < length) {
+			int end = accept.indexOf(',', start);
+			if(-1 == end) end = length;
+			int typeEnd = accept.indexOf(';', start);
+			if(-1 == typeEnd || typeEnd > end) typeEnd = end;
+			int quality = quality(accept, typeEnd, end);
+			if(quality > bestQuality) {
+				best = match(accept, start, typeEnd);
+				bestQuality = quality;
+			}
+			start = end + 1;
+		}
+		return bestQuality > 0 ? best : null;
+	}
+
+	/**
+	 * 匹配媒体类型，未匹配时返回null
+	 */
+	private static MessageEncoder match(String accept, int start, int end) {
+		while(start < end && accept.charAt(start) <= ' ') start++;
+		while(end > start && accept.charAt(end - 1) <= ' ') end--;
+		int length = end - start;
+		for (MessageEncoder encoder : encoders) {
+			for (String type : encoder.getMediaTypes()) {
+				if(type.length() == length && accept.regionMatches(true, start, type, 0, length)) return encoder;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 解析q参数，以千分比表示
+	 */
+	private static int quality(String accept, int start, int end) {
+		int index = accept.indexOf("q=", start);
+		if(-1 == index || index >= end) return 1000;
+		int value = 0, scale = 1000;
+		boolean fraction = false;
+		for (int i = index + 2; i < end; i++) {
+			char ch = accept.charAt(i);
+			if('.' == ch) {
+				fraction = true;
+			} else if(ch >= '0' && ch <= '9') {
+				if(!fraction) {
+					value = (ch - '0') * 1000;
+				} else if(scale > 1) {
+					scale /= 10;
+					value += (ch - '0') * scale;
+				}
+			} else {
+				break;
+			}
+		}
+		return Math.min(value, 1000);
+	}
+}
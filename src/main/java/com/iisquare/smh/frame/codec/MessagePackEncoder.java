@@ -0,0 +1,137 @@
+package com.iisquare.smh.frame.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * MessagePack编码器
+ */
+public class MessagePackEncoder extends MessageEncoder {
+
+	private static final String[] MEDIA_TYPES = {
+		"application/x-msgpack", "application/msgpack", "application/vnd.msgpack"
+	};
+
+	@Override
+	public String getContentType() {
+		return MEDIA_TYPES[0];
+	}
+
+	@Override
+	public String[] getMediaTypes() {
+		return MEDIA_TYPES;
+	}
+
+	@Override
+	protected void writeNil(DataOutputStream out) throws IOException {
+		out.writeByte(0xc0);
+	}
+
+	@Override
+	protected void writeBoolean(DataOutputStream out, boolean value) throws IOException {
+		out.writeByte(value ? 0xc3 : 0xc2);
+	}
+
+	@Override
+	protected void writeLong(DataOutputStream out, long value) throws IOException {
+		if(value >= 0) {
+			if(value < 128) {
+				out.writeByte((int) value);
+			} else if(value < 256) {
+				out.writeByte(0xcc);
+				out.writeByte((int) value);
+			} else if(value < 65536) {
+				out.writeByte(0xcd);
+				out.writeShort((int) value);
+			} else if(value < 4294967296L) {
+				out.writeByte(0xce);
+				out.writeInt((int) value);
+			} else {
+				out.writeByte(0xcf);
+				out.writeLong(value);
+			}
+		} else {
+			if(value >= -32) {
+				out.writeByte((int) value);
+			} else if(value >= Byte.MIN_VALUE) {
+				out.writeByte(0xd0);
+				out.writeByte((int) value);
+			} else if(value >= Short.MIN_VALUE) {
+				out.writeByte(0xd1);
+				out.writeShort((int) value);
+			} else if(value >= Integer.MIN_VALUE) {
+				out.writeByte(0xd2);
+				out.writeInt((int) value);
+			} else {
+				out.writeByte(0xd3);
+				out.writeLong(value);
+			}
+		}
+	}
+
+	@Override
+	protected void writeDouble(DataOutputStream out, double value) throws IOException {
+		out.writeByte(0xcb);
+		out.writeDouble(value);
+	}
+
+	@Override
+	protected void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+		int length = utf8.length;
+		if(length < 32) {
+			out.writeByte(0xa0 | length);
+		} else if(length < 256) {
+			out.writeByte(0xd9);
+			out.writeByte(length);
+		} else if(length < 65536) {
+			out.writeByte(0xda);
+			out.writeShort(length);
+		} else {
+			out.writeByte(0xdb);
+			out.writeInt(length);
+		}
+		out.write(utf8);
+	}
+
+	@Override
+	protected void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		int length = value.length;
+		if(length < 256) {
+			out.writeByte(0xc4);
+			out.writeByte(length);
+		} else if(length < 65536) {
+			out.writeByte(0xc5);
+			out.writeShort(length);
+		} else {
+			out.writeByte(0xc6);
+			out.writeInt(length);
+		}
+		out.write(value);
+	}
+
+	@Override
+	protected void writeArrayHeader(DataOutputStream out, int size) throws IOException {
+		if(size < 16) {
+			out.writeByte(0x90 | size);
+		} else if(size < 65536) {
+			out.writeByte(0xdc);
+			out.writeShort(size);
+		} else {
+			out.writeByte(0xdd);
+			out.writeInt(size);
+		}
+	}
+
+	@Override
+	protected void writeMapHeader(DataOutputStream out, int size) throws IOException {
+		if(size < 16) {
+			out.writeByte(0x80 | size);
+		} else if(size < 65536) {
+			out.writeByte(0xde);
+			out.writeShort(size);
+		} else {
+			out.writeByte(0xdf);
+			out.writeInt(size);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.iisquare.smh.frame.config;
+
+import java.util.Set;
+
+/**
+ * 配置变更监听器，在配置重新加载的线程中调用
+ */
+public interface ConfigListener {
+
+	/**
+	 * @param previous 变更前的配置
+	 * @param current 变更后的配置
+	 * @param keys 新增、删除或修改的配置项
+	 */
+	void onChange(ConfigSnapshot previous, ConfigSnapshot current, Set<String> keys);
+}
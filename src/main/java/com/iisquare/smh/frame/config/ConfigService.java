@@ -0,0 +1,252 @@
+package com.iisquare.smh.frame.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.iisquare.smh.frame.util.PropertiesUtil;
+
+/**
+ * 配置服务，将属性文件加载为不可变的ConfigSnapshot，读取配置时无需加锁及解析
+ * 文件位于文件系统中时通过WatchService监听修改，重新加载后原子替换快照并通知监听器
+ * 多个文件按顺序合并，后加载的文件覆盖同名配置项
+ */
+public class ConfigService implements InitializingBean, DisposableBean {
+
+	static Log log = LogFactory.getLog(ConfigService.class);
+	private static volatile ConfigService instance = new ConfigService(); // 当前启用的配置服务
+	private List<String> locations = Arrays.asList("classpath:jdbc.properties", "classpath:config.properties"); // 配置文件，支持classpath:前缀
+	private boolean watch = true; // 是否监听文件修改
+	private long reloadDelay = 200; // 收到修改事件后等待的时间，合并连续的修改，单位毫秒
+	private final List<ConfigListener> listeners = new CopyOnWriteArrayList<ConfigListener>();
+	private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+	private WatchService watchService;
+	private Thread watcher;
+
+	public static ConfigService getInstance() {
+		return instance;
+	}
+
+	public List<String> getLocations() {
+		return locations;
+	}
+
+	public void setLocations(List<String> locations) {
+		this.locations = locations;
+	}
+
+	public boolean isWatch() {
+		return watch;
+	}
+
+	public void setWatch(boolean watch) {
+		this.watch = watch;
+	}
+
+	public long getReloadDelay() {
+		return reloadDelay;
+	}
+
+	public void setReloadDelay(long reloadDelay) {
+		this.reloadDelay = reloadDelay;
+	}
+
+	public void setListeners(List<ConfigListener> listeners) {
+		this.listeners.clear();
+		this.listeners.addAll(listeners);
+	}
+
+	public ConfigService() {
+
+	}
+
+	public void addListener(ConfigListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ConfigListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 获取当前配置快照，同一快照内的配置相互一致
+	 */
+	public ConfigSnapshot snapshot() {
+		return snapshot;
+	}
+
+	public String get(String key) {
+		return snapshot.get(key);
+	}
+
+	public String get(String key, String defaultValue) {
+		return snapshot.get(key, defaultValue);
+	}
+
+	public int getInt(String key, int defaultValue) {
+		return snapshot.getInt(key, defaultValue);
+	}
+
+	public long getLong(String key, long defaultValue) {
+		return snapshot.getLong(key, defaultValue);
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		return snapshot.getDouble(key, defaultValue);
+	}
+
+	public boolean getBoolean(String key, boolean defaultValue) {
+		return snapshot.getBoolean(key, defaultValue);
+	}
+
+	private URL resolve(String location) {
+		if(location.startsWith("classpath:")) {
+			ClassLoader classLoader = ConfigService.class.getClassLoader();
+			String name = location.substring("classpath:".length());
+			if(name.startsWith("/")) name = name.substring(1);
+			return classLoader.getResource(name);
+		}
+		File file = new File(location);
+		try {
+			return file.exists() ? file.toURI().toURL() : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 获取配置文件在文件系统中的路径
+	 * @return 位于jar包等无法监听的位置时返回null
+	 */
+	private Path toPath(URL url) {
+		if(null == url || !"file".equals(url.getProtocol())) return null;
+		try {
+			return new File(url.toURI()).toPath().toAbsolutePath();
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 重新加载全部配置文件，配置有变化时替换快照并通知监听器
+	 * 任一文件读取失败时保留当前快照
+	 * @return 变化的配置项
+	 */
+	public synchronized Set<String> reload() {
+		Properties properties = new Properties();
+		for (String location : locations) {
+			URL url = resolve(location);
+			if(null == url) {
+				log.warn("config " + location + " not found");
+				continue;
+			}
+			Properties prop = PropertiesUtil.load(url);
+			if(null == prop) {
+				log.error("config " + location + " load failed, keep previous snapshot");
+				return new HashSet<String>();
+			}
+			properties.putAll(prop);
+		}
+		ConfigSnapshot previous = snapshot;
+		ConfigSnapshot current = new ConfigSnapshot(properties);
+		Set<String> keys = current.diff(previous);
+		if(keys.isEmpty()) return keys;
+		snapshot = current;
+		if(ConfigSnapshot.EMPTY == previous) return keys; // 首次加载不通知
+		log.info("config reloaded, changed keys " + keys);
+		for (ConfigListener listener : listeners) {
+			try {
+				listener.onChange(previous, current, keys);
+			} catch (RuntimeException e) {
+				log.error("config listener " + listener + " failed", e);
+			}
+		}
+		return keys;
+	}
+
+	private void startWatcher() throws IOException {
+		final Map<Path, Set<Path>> directories = new HashMap<Path, Set<Path>>(); // 目录及其中需要监听的文件名
+		for (String location : locations) {
+			Path path = toPath(resolve(location));
+			if(null == path) continue;
+			Set<Path> names = directories.get(path.getParent());
+			if(null == names) {
+				names = new HashSet<Path>();
+				directories.put(path.getParent(), names);
+			}
+			names.add(path.getFileName());
+		}
+		if(directories.isEmpty()) return;
+		watchService = FileSystems.getDefault().newWatchService();
+		final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+		for (Path directory : directories.keySet()) {
+			keys.put(directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY), directory);
+		}
+		final WatchService service = watchService;
+		watcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while(true) {
+						WatchKey key = service.take();
+						boolean changed = false;
+						while(null != key) {
+							Set<Path> names = directories.get(keys.get(key));
+							for (WatchEvent<?> event : key.pollEvents()) {
+								Object context = event.context();
+								if(null != names && names.contains(context)) changed = true;
+							}
+							key.reset();
+							key = changed ? service.poll(reloadDelay, TimeUnit.MILLISECONDS) : null; // 合并连续的修改事件
+						}
+						if(changed) reload();
+					}
+				} catch (InterruptedException e) {
+					return;
+				} catch (ClosedWatchServiceException e) {
+					return;
+				}
+			}
+		}, "frame-config-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		reload();
+		if(watch) startWatcher();
+		instance = this;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if(null != watchService) watchService.close();
+		if(null != watcher) watcher.interrupt();
+	}
+}
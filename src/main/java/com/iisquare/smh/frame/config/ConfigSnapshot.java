@@ -0,0 +1,108 @@
+package com.iisquare.smh.frame.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 配置快照，创建后不可修改，可在多线程中共享
+ * 数值及布尔值在创建时预先解析，读取时不再转换
+ */
+public class ConfigSnapshot {
+
+	public static final ConfigSnapshot EMPTY = new ConfigSnapshot(new Properties());
+	private final Map<String, String> values;
+	private final Map<String, Long> longs = new HashMap<String, Long>();
+	private final Map<String, Double> doubles = new HashMap<String, Double>();
+	private final Map<String, Boolean> booleans = new HashMap<String, Boolean>();
+	private final long version; // 创建时间，单位毫秒
+
+	public ConfigSnapshot(Properties properties) {
+		Map<String, String> map = new HashMap<String, String>();
+		for (String key : properties.stringPropertyNames()) {
+			String value = properties.getProperty(key);
+			map.put(key, value);
+			String text = value.trim();
+			try {
+				longs.put(key, Long.parseLong(text));
+			} catch (NumberFormatException e) {}
+			try {
+				doubles.put(key, Double.parseDouble(text));
+			} catch (NumberFormatException e) {}
+			if("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+				booleans.put(key, Boolean.valueOf(text));
+			}
+		}
+		values = Collections.unmodifiableMap(map);
+		version = System.currentTimeMillis();
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * 获取全部配置，返回只读Map
+	 */
+	public Map<String, String> asMap() {
+		return values;
+	}
+
+	public boolean contains(String key) {
+		return values.containsKey(key);
+	}
+
+	public String get(String key) {
+		return values.get(key);
+	}
+
+	public String get(String key, String defaultValue) {
+		String value = values.get(key);
+		return null == value ? defaultValue : value;
+	}
+
+	/**
+	 * 获取整数配置
+	 * @return 不存在、不是整数或超出int范围时返回默认值
+	 */
+	public int getInt(String key, int defaultValue) {
+		Long value = longs.get(key);
+		if(null == value || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) return defaultValue;
+		return value.intValue();
+	}
+
+	public long getLong(String key, long defaultValue) {
+		Long value = longs.get(key);
+		return null == value ? defaultValue : value;
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		Double value = doubles.get(key);
+		return null == value ? defaultValue : value;
+	}
+
+	/**
+	 * 获取布尔配置，仅识别true及false，不区分大小写
+	 */
+	public boolean getBoolean(String key, boolean defaultValue) {
+		Boolean value = booleans.get(key);
+		return null == value ? defaultValue : value;
+	}
+
+	/**
+	 * 获取与另一快照相比新增、删除或修改的配置项
+	 */
+	public Set<String> diff(ConfigSnapshot other) {
+		Set<String> keys = new HashSet<String>();
+		for (Map.Entry<String, String> item : values.entrySet()) {
+			if(!item.getValue().equals(other.values.get(item.getKey()))) keys.add(item.getKey());
+		}
+		for (String key : other.values.keySet()) {
+			if(!values.containsKey(key)) keys.add(key);
+		}
+		return keys;
+	}
+}
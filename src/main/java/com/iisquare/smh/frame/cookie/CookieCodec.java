@@ -0,0 +1,200 @@
+package com.iisquare.smh.frame.cookie;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * 签名Cookie编解码，用于在客户端保存无状态的用户信息
+ * 格式为Base64(标识 + 过期时间 + 内容).Base64(HMAC(名称 + 数据))，内容超过compressThreshold且压缩后更小时采用Deflate压缩
+ * 签名可防篡改但不加密，请勿保存敏感信息；多节点部署时各节点应配置相同的secret
+ * 必须配置不少于16字节的secret，否则启动失败
+ */
+public class CookieCodec implements InitializingBean {
+
+	static Log log = LogFactory.getLog(CookieCodec.class);
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int FLAG_COMPRESSED = 1;
+	private static final int HEADER_LENGTH = 9; // 1字节标识 + 8字节过期时间
+	private static final int MAX_INFLATED = 65536; // 解压后的最大长度
+	private static volatile CookieCodec instance; // 当前启用的编解码器
+	private static final int MIN_SECRET_LENGTH = 16; // 密钥最小字节数
+	private String secret; // 签名密钥
+	private String algorithm = "HmacSHA256";
+	private int compressThreshold = 256; // 超过此字节数时尝试压缩
+	private SecretKeySpec key;
+	private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				Mac mac = Mac.getInstance(algorithm);
+				mac.init(key);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	public static CookieCodec getInstance() {
+		return instance;
+	}
+
+	public String getSecret() {
+		return secret;
+	}
+
+	public void setSecret(String secret) {
+		this.secret = secret;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	public int getCompressThreshold() {
+		return compressThreshold;
+	}
+
+	public void setCompressThreshold(int compressThreshold) {
+		this.compressThreshold = compressThreshold;
+	}
+
+	public CookieCodec() {
+
+	}
+
+	/**
+	 * 编码并签名
+	 * @param name Cookie名称，参与签名，避免值被复制到其他Cookie
+	 * @param value 原始值
+	 * @param maxAge 有效秒数，小于等于0时不限制
+	 * @return 可直接写入Cookie的值
+	 */
+	public String encode(String name, String value, int maxAge) {
+		byte[] data = value.getBytes(UTF8);
+		int flags = 0;
+		if(data.length > compressThreshold) {
+			byte[] compressed = deflate(data);
+			if(compressed.length < data.length) {
+				data = compressed;
+				flags |= FLAG_COMPRESSED;
+			}
+		}
+		long expire = maxAge > 0 ? System.currentTimeMillis() / 1000 + maxAge : 0;
+		ByteBuffer payload = ByteBuffer.allocate(HEADER_LENGTH + data.length);
+		payload.put((byte) flags).putLong(expire).put(data);
+		byte[] bytes = payload.array();
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		StringBuilder sb = new StringBuilder();
+		sb.append(encoder.encodeToString(bytes)).append('.').append(encoder.encodeToString(sign(name, bytes)));
+		return sb.toString();
+	}
+
+	/**
+	 * 校验签名并解码
+	 * @param name Cookie名称
+	 * @param cookieValue Cookie值
+	 * @return 签名无效、格式错误或已过期时返回null
+	 */
+	public String decode(String name, String cookieValue) {
+		if(null == cookieValue) return null;
+		int index = cookieValue.indexOf('.');
+		if(-1 == index) return null;
+		byte[] bytes, signature;
+		try {
+			Base64.Decoder decoder = Base64.getUrlDecoder();
+			bytes = decoder.decode(cookieValue.substring(0, index));
+			signature = decoder.decode(cookieValue.substring(index + 1));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		if(bytes.length < HEADER_LENGTH) return null;
+		if(!MessageDigest.isEqual(signature, sign(name, bytes))) return null;
+		ByteBuffer payload = ByteBuffer.wrap(bytes);
+		int flags = payload.get();
+		long expire = payload.getLong();
+		if(expire > 0 && expire < System.currentTimeMillis() / 1000) return null;
+		byte[] data = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+		if(0 != (flags & FLAG_COMPRESSED)) {
+			data = inflate(data);
+			if(null == data) return null;
+		}
+		return new String(data, UTF8);
+	}
+
+	private byte[] sign(String name, byte[] payload) {
+		Mac mac = macs.get();
+		mac.update(name.getBytes(UTF8));
+		mac.update((byte) 0);
+		return mac.doFinal(payload);
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+			byte[] buffer = new byte[1024];
+			while(!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(byte[] data) {
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+			byte[] buffer = new byte[1024];
+			while(!inflater.finished()) {
+				int length = inflater.inflate(buffer);
+				if(0 == length && (inflater.needsInput() || inflater.needsDictionary())) return null;
+				out.write(buffer, 0, length);
+				if(out.size() > MAX_INFLATED) return null;
+			}
+			return out.toByteArray();
+		} catch (DataFormatException e) {
+			return null;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if(null == secret || secret.length() < 1) {
+			throw new IllegalStateException("cookie secret is required, please set config.cookie_secret");
+		}
+		byte[] bytes = secret.getBytes(UTF8);
+		if(bytes.length < MIN_SECRET_LENGTH) {
+			throw new IllegalStateException("cookie secret is too short, at least " + MIN_SECRET_LENGTH + " bytes are required");
+		}
+		key = new SecretKeySpec(bytes, algorithm);
+		Mac.getInstance(algorithm).init(key); // 启动时校验算法及密钥
+		instance = this;
+	}
+}
@@ -0,0 +1,89 @@
+package com.iisquare.smh.frame.cookie;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 请求Cookie索引，每个请求仅解析一次Cookie请求头
+ * 同名Cookie以首次出现的值为准，与request.getCookies()的查找顺序一致
+ */
+public class RequestCookies {
+
+	public static final String ATTRIBUTE_NAME = RequestCookies.class.getName();
+	private final Map<String, String> values;
+
+	private RequestCookies(Map<String, String> values) {
+		this.values = values;
+	}
+
+	/**
+	 * 获取当前请求的Cookie索引
+	 */
+	public static RequestCookies get(HttpServletRequest request) {
+		RequestCookies cookies = (RequestCookies) request.getAttribute(ATTRIBUTE_NAME);
+		if(null == cookies) {
+			Map<String, String> values = null;
+			Enumeration<String> headers = request.getHeaders("Cookie");
+			while(null != headers && headers.hasMoreElements()) {
+				values = parse(headers.nextElement(), values);
+			}
+			cookies = new RequestCookies(null == values ? Collections.<String, String>emptyMap() : values);
+			request.setAttribute(ATTRIBUTE_NAME, cookies);
+		}
+		return cookies;
+	}
+
+	/**
+	 * 获取Cookie原始值
+	 * @return 不存在时返回null
+	 */
+	public String get(String name) {
+		return values.get(name);
+	}
+
+	public boolean contains(String name) {
+		return values.containsKey(name);
+	}
+
+	public Set<String> names() {
+		return Collections.unmodifiableSet(values.keySet());
+	}
+
+	/**
+	 * 解析Cookie请求头，格式为name1=value1; name2=value2
+	 */
+	static Map<String, String> parse(String header, Map<String, String> values) {
+		if(null == header) return values;
+		int length = header.length();
+		int start = 0;
+		while(start < length) {
+			int end = header.indexOf(';', start);
+			if(-1 == end) end = length;
+			int separator = header.indexOf('=', start);
+			if(-1 != separator && separator < end) {
+				int nameStart = start, nameEnd = separator;
+				while(nameStart < nameEnd && header.charAt(nameStart) <= ' ') nameStart++;
+				while(nameEnd > nameStart && header.charAt(nameEnd - 1) <= ' ') nameEnd--;
+				int valueStart = separator + 1, valueEnd = end;
+				while(valueStart < valueEnd && header.charAt(valueStart) <= ' ') valueStart++;
+				while(valueEnd > valueStart && header.charAt(valueEnd - 1) <= ' ') valueEnd--;
+				if(valueEnd - valueStart >= 2 && '"' == header.charAt(valueStart) && '"' == header.charAt(valueEnd - 1)) {
+					valueStart++;
+					valueEnd--;
+				}
+				if(nameEnd > nameStart && '$' != header.charAt(nameStart)) { // 忽略$Version等属性
+					if(null == values) values = new HashMap<String, String>();
+					String name = header.substring(nameStart, nameEnd);
+					if(!values.containsKey(name)) values.put(name, header.substring(valueStart, valueEnd));
+				}
+			}
+			start = end + 1;
+		}
+		return values;
+	}
+}
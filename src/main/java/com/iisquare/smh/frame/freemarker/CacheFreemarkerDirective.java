@@ -0,0 +1,62 @@
+package com.iisquare.smh.frame.freemarker;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+import com.iisquare.smh.frame.util.DPUtil;
+
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * 片段输出缓存
+ * 用法：<@cache key="index_menu" ttl=60 depends="Test">...</@cache>
+ */
+public class CacheFreemarkerDirective implements TemplateDirectiveModel {
+
+	public static final String KEY_PREFIX = "fragment:";
+	private OutputCacheManager outputCacheManager;
+
+	public OutputCacheManager getOutputCacheManager() {
+		return outputCacheManager;
+	}
+
+	public void setOutputCacheManager(OutputCacheManager outputCacheManager) {
+		this.outputCacheManager = outputCacheManager;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void execute(Environment env, Map params, TemplateModel[] loopVars,
+			TemplateDirectiveBody body) throws TemplateException, IOException {
+		if(null == body) return;
+		Object key = params.get("key");
+		if(null == key) {
+			throw new TemplateModelException("Cache key is null!");
+		}
+		if(null == outputCacheManager) {
+			body.render(env.getOut());
+			return;
+		}
+		String cacheKey = KEY_PREFIX + key.toString();
+		OutputCacheManager.Entry entry = outputCacheManager.get(cacheKey);
+		if(null != entry) {
+			env.getOut().write(entry.getContent());
+			return;
+		}
+		StringWriter writer = new StringWriter();
+		body.render(writer);
+		String content = writer.toString();
+		int ttl = params.containsKey("ttl") ? DPUtil.parseInt(params.get("ttl")) : 60;
+		String[] depends = DPUtil.explode(null == params.get("depends") ? null : params.get("depends").toString(), ",", " ");
+		outputCacheManager.put(cacheKey, content, null, ttl, depends);
+		env.getOut().write(content);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.iisquare.smh.frame.freemarker;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.web.servlet.view.freemarker.FreeMarkerView;
+
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+import com.iisquare.smh.frame.cache.OutputCacheResponseWrapper;
+import com.iisquare.smh.frame.springmvc.ControllerBase;
+import com.iisquare.smh.frame.util.ServletUtil;
+
+import freemarker.core.Environment;
+import freemarker.template.SimpleHash;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * 拓展FreeMarker视图，支持整页输出缓存及根据输出内容生成ETag
+ * 精简视图模型采用视图配置的ObjectWrapper
+ * 启用模板预编译时，按预编译的区域查找模板，避免其他区域的请求重新解析模板
+ */
+public class FrameFreeMarkerView extends FreeMarkerView {
+
+	@Override
+	protected Template getTemplate(String name, Locale locale) throws IOException {
+		TemplatePrecompiler precompiler = TemplatePrecompiler.getInstance();
+		if(null != precompiler) locale = precompiler.resolveLocale(locale);
+		return super.getTemplate(name, locale);
+	}
+
+	@Override
+	protected void processTemplate(Template template, SimpleHash model,
+			HttpServletResponse response) throws IOException, TemplateException {
+		Locale locale = LocaleContextHolder.getLocale();
+		if(null == TemplatePrecompiler.getInstance() || null == locale || locale.equals(template.getLocale())) {
+			super.processTemplate(template, model, response);
+			return;
+		}
+		Environment environment = template.createProcessingEnvironment(model, response.getWriter());
+		environment.setLocale(locale); // 模板按预编译的区域查找，格式化仍采用请求的区域
+		environment.process();
+	}
+
+	@Override
+	protected void renderMergedTemplateModel(Map<String, Object> model,
+			HttpServletRequest request, HttpServletResponse response)
+			throws Exception {
+		Object frame = model.get(FrameTemplateHashModel.NAME);
+		if(frame instanceof FrameTemplateHashModel) { // 采用视图配置的ObjectWrapper
+			((FrameTemplateHashModel) frame).setObjectWrapper(getObjectWrapper());
+		}
+		OutputCacheManager.Ticket ticket = (OutputCacheManager.Ticket) request.getAttribute(OutputCacheManager.Ticket.ATTRIBUTE_NAME);
+		boolean strongETag = null != request.getAttribute(ControllerBase.STRONG_ETAG_ATTRIBUTE);
+		if(null == ticket && !strongETag) {
+			super.renderMergedTemplateModel(model, request, response);
+			return;
+		}
+		OutputCacheResponseWrapper wrapper = new OutputCacheResponseWrapper(response);
+		super.renderMergedTemplateModel(model, request, wrapper);
+		String content = wrapper.getContent();
+		if(HttpServletResponse.SC_OK != response.getStatus()) {
+			strongETag = false;
+		} else if(null != ticket) {
+			ticket.store(content, response);
+		}
+		if(strongETag && !response.containsHeader("ETag")
+				&& ServletUtil.checkNotModified(request, response, ServletUtil.strongETag(content), -1)) {
+			return;
+		}
+		PrintWriter out = response.getWriter();
+		out.write(content);
+		out.flush();
+	}
+
+}
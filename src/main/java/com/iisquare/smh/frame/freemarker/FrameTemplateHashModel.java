@@ -0,0 +1,128 @@
+package com.iisquare.smh.frame.freemarker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.iisquare.smh.frame.session.FrameSession;
+import com.iisquare.smh.frame.springmvc.ControllerBase;
+
+import freemarker.ext.servlet.HttpRequestHashModel;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * 精简视图模型，模板中通过${_FRAME_.MODULE}等方式访问框架参数
+ * 各项值在首次访问时才进行包装，并缓存在当前请求内
+ * 仅在允许时暴露REQUEST和SESSION，避免整体包装Servlet对象
+ */
+public class FrameTemplateHashModel implements TemplateHashModel {
+
+	public static final String NAME = "_FRAME_";
+	private static final Map<String, Integer> keys = new HashMap<String, Integer>(16);
+	private static final int MODULE = 0, CONTROLLER = 1, ACTION = 2, WEB_ROOT = 3, WEB_URL = 4,
+			SKIN_URL = 5, THEME_URL = 6, DIRECTORY_SEPARATOR = 7, CONFIG = 8, REQUEST = 9, SESSION = 10;
+
+	static {
+		keys.put("MODULE", MODULE);
+		keys.put("CONTROLLER", CONTROLLER);
+		keys.put("ACTION", ACTION);
+		keys.put("WEB_ROOT", WEB_ROOT);
+		keys.put("WEB_URL", WEB_URL);
+		keys.put("SKIN_URL", SKIN_URL);
+		keys.put("THEME_URL", THEME_URL);
+		keys.put("DIRECTORY_SEPARATOR", DIRECTORY_SEPARATOR);
+		keys.put("CONFIG", CONFIG);
+		keys.put("REQUEST", REQUEST);
+		keys.put("SESSION", SESSION);
+	}
+
+	private ControllerBase controller;
+	private ObjectWrapper objectWrapper;
+	private boolean exposeRequest;
+	private TemplateModel[] models = new TemplateModel[keys.size()];
+
+	/**
+	 * 未指定ObjectWrapper时，由FrameFreeMarkerView在渲染前设置为视图配置的ObjectWrapper
+	 */
+	public FrameTemplateHashModel(ControllerBase controller, boolean exposeRequest) {
+		this(controller, exposeRequest, null);
+	}
+
+	public FrameTemplateHashModel(ControllerBase controller, boolean exposeRequest, ObjectWrapper objectWrapper) {
+		this.controller = controller;
+		this.exposeRequest = exposeRequest;
+		this.objectWrapper = objectWrapper;
+	}
+
+	public ObjectWrapper getObjectWrapper() {
+		return null == objectWrapper ? ObjectWrapper.DEFAULT_WRAPPER : objectWrapper;
+	}
+
+	public void setObjectWrapper(ObjectWrapper objectWrapper) {
+		this.objectWrapper = objectWrapper;
+	}
+
+	@Override
+	public TemplateModel get(String key) throws TemplateModelException {
+		Integer index = keys.get(key);
+		if(null == index) return null;
+		TemplateModel model = models[index];
+		if(null == model) {
+			model = create(index);
+			models[index] = model;
+		}
+		return model;
+	}
+
+	@Override
+	public boolean isEmpty() throws TemplateModelException {
+		return false;
+	}
+
+	/**
+	 * 生成对应项的模板模型
+	 * @param index 项序号
+	 * @return 不存在或不允许访问时返回null
+	 * @throws TemplateModelException
+	 */
+	private TemplateModel create(int index) throws TemplateModelException {
+		switch (index) {
+		case MODULE :
+			return scalar(controller._MODULE_);
+		case CONTROLLER :
+			return scalar(controller._CONTROLLER_);
+		case ACTION :
+			return scalar(controller._ACTION_);
+		case WEB_ROOT :
+			return scalar(controller.getWebRoot());
+		case WEB_URL :
+			return scalar(controller.getWebUrl());
+		case SKIN_URL :
+			return scalar(controller.getSkinUrl());
+		case THEME_URL :
+			return scalar(controller.getThemeUrl());
+		case DIRECTORY_SEPARATOR :
+			return scalar(controller.getDirectorySeparator());
+		case CONFIG :
+			return getObjectWrapper().wrap(controller.getFrameConfiguration());
+		case REQUEST :
+			if(!exposeRequest || null == controller._REQUEST_) return null;
+			return new HttpRequestHashModel(controller._REQUEST_, controller._RESPONSE_, getObjectWrapper());
+		case SESSION :
+			if(!exposeRequest || null == controller._REQUEST_) return null;
+			FrameSession session = FrameSession.get(controller._REQUEST_);
+			if(null == session.getId()) return null;
+			return getObjectWrapper().wrap(session.getAll());
+		default :
+			return null;
+		}
+	}
+
+	private TemplateModel scalar(String value) {
+		if(null == value) return null;
+		return new SimpleScalar(value);
+	}
+}
@@ -7,6 +7,7 @@ import com.iisquare.smh.frame.util.DPUtil;
 
 import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateNumberModel;
 
 /**
  * 将毫秒转换为日期格式
@@ -29,7 +30,13 @@ public class MillisToDateTimeFreemarkerModel implements TemplateMethodModelEx {
 		if (list == null || list.size() < 1) {  
             throw new TemplateModelException("Millis value is null!");  
         }
-		Long millis = DPUtil.parseLong(list.get(0));
+		Object value = list.get(0);
+		long millis;
+		if(value instanceof TemplateNumberModel) { // 数值直接取值，避免转换为字符串后再解析
+			millis = ((TemplateNumberModel) value).getAsNumber().longValue();
+		} else {
+			millis = DPUtil.parseLong(value);
+		}
 		String datetimeFormat;
 		if(list.size() >= 2) {
 			datetimeFormat =  list.get(1).toString();
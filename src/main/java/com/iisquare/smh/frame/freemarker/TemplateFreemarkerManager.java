@@ -2,6 +2,8 @@ package com.iisquare.smh.frame.freemarker;
 
 import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
 
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+
 import freemarker.template.Configuration;
 
 /**
@@ -9,6 +11,8 @@ import freemarker.template.Configuration;
  */
 public class TemplateFreemarkerManager {
 	private FreeMarkerConfigurer freeMarkerConfigurer;
+	private OutputCacheManager outputCacheManager;
+	private CacheFreemarkerDirective cacheFreemarkerDirective = new CacheFreemarkerDirective();
 
 	public FreeMarkerConfigurer getFreeMarkerConfigurer() {
 		return freeMarkerConfigurer;
@@ -21,6 +25,16 @@ public class TemplateFreemarkerManager {
         configuration.setSharedVariable("empty", new EmptyFreemarkerModel());
         configuration.setSharedVariable("escapeHtml", new EscapeHtmlFreemarkerModel());
         configuration.setSharedVariable("unescapeHtml", new UnescapeHtmlFreemarkerModel());
+        configuration.setSharedVariable("cache", cacheFreemarkerDirective);
+	}
+	
+	public OutputCacheManager getOutputCacheManager() {
+		return outputCacheManager;
+	}
+
+	public void setOutputCacheManager(OutputCacheManager outputCacheManager) {
+		this.outputCacheManager = outputCacheManager;
+		cacheFreemarkerDirective.setOutputCacheManager(outputCacheManager);
 	}
 	
 	public TemplateFreemarkerManager() {
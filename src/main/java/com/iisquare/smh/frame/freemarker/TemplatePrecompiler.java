@@ -0,0 +1,247 @@
+package com.iisquare.smh.frame.freemarker;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.ServletContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.ServletContextAware;
+import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
+
+import com.iisquare.smh.frame.FrameConfiguration;
+import com.iisquare.smh.frame.util.DPUtil;
+
+import freemarker.template.Configuration;
+
+/**
+ * 生产环境模板预编译
+ * 关闭模板更新检查，启动时并行解析全部模板并放入FreeMarker缓存
+ * 解析失败的模板在启动阶段输出错误日志，failOnError为true时中止启动
+ * FreeMarker按模板名称及区域缓存模板，因此按locales中的每个区域分别预编译
+ * 请求的区域未预编译时，FrameFreeMarkerView改用首个预编译区域查找模板，格式化仍采用请求的区域
+ */
+public class TemplatePrecompiler implements InitializingBean, ServletContextAware {
+
+	static Log log = LogFactory.getLog(TemplatePrecompiler.class);
+	private static volatile TemplatePrecompiler instance; // 当前启用的预编译器，未启用时为null
+	private FreeMarkerConfigurer freeMarkerConfigurer;
+	private FrameConfiguration frameConfiguration;
+	private ServletContext servletContext;
+	private String templatePath = "/WEB-INF/template/"; // 模板根目录，与templateLoaderPath保持一致
+	private String suffix = ".htm"; // 模板后缀，与viewResolver保持一致
+	private int updateDelay = Integer.MAX_VALUE; // 模板更新检查间隔，单位秒
+	private int threads = Runtime.getRuntime().availableProcessors(); // 并行解析线程数
+	private boolean failOnError = false; // 存在解析失败的模板时中止启动
+	private List<String> locales; // 预编译的区域，如zh_CN，为空时采用FreeMarker配置的区域
+	private volatile Set<Locale> precompiledLocales = Collections.emptySet();
+	private volatile Locale defaultLocale;
+
+	public static TemplatePrecompiler getInstance() {
+		return instance;
+	}
+
+	public FreeMarkerConfigurer getFreeMarkerConfigurer() {
+		return freeMarkerConfigurer;
+	}
+
+	public void setFreeMarkerConfigurer(FreeMarkerConfigurer freeMarkerConfigurer) {
+		this.freeMarkerConfigurer = freeMarkerConfigurer;
+	}
+
+	public FrameConfiguration getFrameConfiguration() {
+		return frameConfiguration;
+	}
+
+	public void setFrameConfiguration(FrameConfiguration frameConfiguration) {
+		this.frameConfiguration = frameConfiguration;
+	}
+
+	public String getTemplatePath() {
+		return templatePath;
+	}
+
+	public void setTemplatePath(String templatePath) {
+		this.templatePath = templatePath;
+	}
+
+	public String getSuffix() {
+		return suffix;
+	}
+
+	public void setSuffix(String suffix) {
+		this.suffix = suffix;
+	}
+
+	public int getUpdateDelay() {
+		return updateDelay;
+	}
+
+	public void setUpdateDelay(int updateDelay) {
+		this.updateDelay = updateDelay;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public boolean isFailOnError() {
+		return failOnError;
+	}
+
+	public void setFailOnError(boolean failOnError) {
+		this.failOnError = failOnError;
+	}
+
+	public List<String> getLocales() {
+		return locales;
+	}
+
+	public void setLocales(List<String> locales) {
+		this.locales = locales;
+	}
+
+	@Override
+	public void setServletContext(ServletContext servletContext) {
+		this.servletContext = servletContext;
+	}
+
+	public TemplatePrecompiler() {
+
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		Configuration configuration = freeMarkerConfigurer.getConfiguration();
+		configuration.setTemplateUpdateDelay(updateDelay);
+		String realPath = servletContext.getRealPath(templatePath);
+		if(null == realPath) {
+			log.warn("template path " + templatePath + " is not available, precompile skipped");
+			return;
+		}
+		List<String> names = listTemplates(Paths.get(realPath));
+		Set<Locale> locales = new LinkedHashSet<Locale>();
+		if(null != this.locales) {
+			for (String locale : this.locales) {
+				if(!DPUtil.empty(locale)) locales.add(StringUtils.parseLocaleString(locale.trim()));
+			}
+		}
+		if(locales.isEmpty()) locales.add(configuration.getLocale());
+		long time = System.currentTimeMillis();
+		Map<String, String> errors = new LinkedHashMap<String, String>();
+		for (Locale locale : locales) {
+			errors.putAll(precompile(configuration, names, locale));
+		}
+		time = System.currentTimeMillis() - time;
+		for (Map.Entry<String, String> item : errors.entrySet()) {
+			log.error("template " + item.getKey() + " parse failed: " + item.getValue());
+		}
+		log.info("precompiled " + (names.size() * locales.size() - errors.size()) + "/" + names.size() * locales.size()
+				+ " templates in " + time + "ms, locales: " + locales + ", theme: " + (null == frameConfiguration
+						|| DPUtil.empty(frameConfiguration.getThemeName()) ? "none" : frameConfiguration.getThemeName()));
+		if(failOnError && !errors.isEmpty()) {
+			throw new IllegalStateException(errors.size() + " templates parse failed: " + DPUtil.implode(",", errors.keySet()));
+		}
+		defaultLocale = locales.iterator().next();
+		precompiledLocales = locales;
+		instance = this;
+	}
+
+	/**
+	 * 获取查找模板时采用的区域
+	 * @param locale 请求的区域
+	 * @return 请求的区域已预编译时原样返回，否则返回首个预编译区域
+	 */
+	public Locale resolveLocale(Locale locale) {
+		if(null == defaultLocale || precompiledLocales.contains(locale)) return locale;
+		return defaultLocale;
+	}
+
+	/**
+	 * 获取模板目录下的全部模板名称，包含各主题目录
+	 * @param root 模板根目录
+	 * @return 相对于根目录的模板名称
+	 * @throws IOException
+	 */
+	public List<String> listTemplates(final Path root) throws IOException {
+		final List<String> names = new ArrayList<String>();
+		if(!Files.isDirectory(root)) return names;
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				String name = root.relativize(file).toString().replace('\\', '/');
+				if(name.endsWith(suffix)) names.add(name);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return names;
+	}
+
+	/**
+	 * 采用FreeMarker配置的区域并行解析模板
+	 * @see #precompile(Configuration, List, Locale)
+	 */
+	public Map<String, String> precompile(Configuration configuration, List<String> names) throws InterruptedException {
+		return precompile(configuration, names, configuration.getLocale());
+	}
+
+	/**
+	 * 并行解析模板，结果保存在Configuration的模板缓存中
+	 * @param configuration FreeMarker配置
+	 * @param names 模板名称
+	 * @param locale 模板区域，与查找模板时的区域一致才能命中缓存
+	 * @return 解析失败的模板及错误信息
+	 * @throws InterruptedException
+	 */
+	public Map<String, String> precompile(final Configuration configuration, List<String> names, final Locale locale) throws InterruptedException {
+		Map<String, String> errors = new LinkedHashMap<String, String>();
+		if(names.isEmpty()) return errors;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())));
+		try {
+			Map<String, Future<Object>> futures = new LinkedHashMap<String, Future<Object>>();
+			for (final String name : names) {
+				futures.put(name, executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						return configuration.getTemplate(name, locale);
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Object>> item : futures.entrySet()) {
+				try {
+					item.getValue().get();
+				} catch (ExecutionException e) {
+					errors.put(item.getKey() + "@" + locale, e.getCause().getMessage());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return errors;
+	}
+}
@@ -2,8 +2,10 @@ package com.iisquare.smh.frame.hibernate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Query;
@@ -12,8 +14,12 @@ import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.internal.util.StringHelper;
+import org.hibernate.metadata.ClassMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.iisquare.smh.frame.cache.OutputCacheManager;
 import com.iisquare.smh.frame.util.DPUtil;
 
 /**
@@ -21,12 +27,15 @@ import com.iisquare.smh.frame.util.DPUtil;
  */
 public abstract class DaoBase<T> {
 	
+	private static final Object INVALIDATE_KEY = new Object(); // 事务内待失效的输出缓存依赖
 	private Class<T> entityClass;
 	private boolean debug = false;
 	@Autowired
 	private SessionFactory sessionFactory;
 	@Autowired
 	private DaoNamingStrategy daoNamingStrategy;
+	@Autowired(required = false)
+	private OutputCacheManager outputCacheManager;
 
 	public boolean isDebug() {
 		return debug;
@@ -52,6 +61,14 @@ public abstract class DaoBase<T> {
 		this.daoNamingStrategy = daoNamingStrategy;
 	}
 
+	public OutputCacheManager getOutputCacheManager() {
+		return outputCacheManager;
+	}
+
+	public void setOutputCacheManager(OutputCacheManager outputCacheManager) {
+		this.outputCacheManager = outputCacheManager;
+	}
+
 	public DaoBase(Class<T> clazz) {
 		this.entityClass = clazz;
 	}
@@ -88,6 +105,7 @@ public abstract class DaoBase<T> {
 			}
 			return false;
 		}
+		afterWrite();
 		return true;
 	}
 
@@ -107,6 +125,7 @@ public abstract class DaoBase<T> {
 			}
 			return false;
 		}
+		afterWrite();
 		return true;
 	}
 	
@@ -228,6 +247,7 @@ public abstract class DaoBase<T> {
 			}
 			return false;
 		}
+		afterWrite();
 		return true;
 	}
 	
@@ -301,6 +321,51 @@ public abstract class DaoBase<T> {
 		return DPUtil.parseInt(query.setFirstResult(0).setMaxResults(1).uniqueResult());
 	}
 	
+	/**
+	 * 获取当前实体的版本标识，用于条件请求判断
+	 * 实体需通过@Version声明版本字段，任一记录的新增、修改或删除均会改变版本标识
+	 * HQL批量更新需采用update versioned语句才会递增版本字段
+	 * @return 主键最大值、记录数与版本字段之和的组合，未声明版本字段或查询失败时返回null
+	 */
+	public String queryVersion() {
+		ClassMetadata metadata = sessionFactory.getClassMetadata(entityClass);
+		if(null == metadata || !metadata.isVersioned()) return null;
+		StringBuilder hb = new StringBuilder("select max(").append(metadata.getIdentifierPropertyName())
+				.append("), count(*), sum(").append(metadata.getPropertyNames()[metadata.getVersionProperty()])
+				.append(") from ").append(entityClass.getSimpleName());
+		return queryVersionByHql(hb.toString());
+	}
+	
+	/**
+	 * 获取当前实体的版本标识，用于条件请求判断
+	 * @param field 修改时间等随每次写操作单调递增的字段名称
+	 * @return 字段最大值与记录数的组合，记录数用于识别删除操作，查询失败时返回null
+	 */
+	public String queryVersion(String field) {
+		StringBuilder hb = new StringBuilder("select max(").append(field)
+				.append("), count(*) from ").append(entityClass.getSimpleName());
+		return queryVersionByHql(hb.toString());
+	}
+	
+	private String queryVersionByHql(String hql) {
+		Object[] result;
+		try {
+			result = (Object[]) sessionFactory.getCurrentSession().createQuery(hql).uniqueResult();
+		} catch(Exception e) {
+			if(isDebug()) {
+				e.printStackTrace();
+			}
+			return null;
+		}
+		if(null == result) return "";
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < result.length; i++) {
+			if(i > 0) sb.append("-");
+			sb.append(result[i]);
+		}
+		return sb.toString();
+	}
+	
 	/**
 	 * 根据主键获取实体对象
 	 * @param id 主键值
@@ -1605,7 +1670,9 @@ public abstract class DaoBase<T> {
 		Query query = sessionFactory.getCurrentSession().createQuery(hql);
 		setQueryParams(query, params);
 		try {
-			return query.executeUpdate();
+			int result = query.executeUpdate();
+			afterWrite();
+			return result;
 		} catch(Exception e) {
 			if(isDebug()) {
 				e.printStackTrace();
@@ -1636,7 +1703,9 @@ public abstract class DaoBase<T> {
 		Query query = sessionFactory.getCurrentSession().createSQLQuery(sql);
 		setQueryParams(query, params);
 		try {
-			return query.executeUpdate();
+			int result = query.executeUpdate();
+			afterWrite();
+			return result;
 		} catch(Exception e) {
 			if(isDebug()) {
 				e.printStackTrace();
@@ -1645,6 +1714,48 @@ public abstract class DaoBase<T> {
 		}
 	}
 	
+	/**
+	 * 写操作成功后被调用，失效依赖当前实体的输出缓存
+	 * 处于事务中时延迟至事务提交后失效，避免并发请求在提交前读取旧数据并重新写入缓存
+	 */
+	protected void afterWrite() {
+		if(null == outputCacheManager) return;
+		String name = entityClass.getSimpleName();
+		if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+			outputCacheManager.invalidate(name);
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		Set<String> names = (Set<String>) TransactionSynchronizationManager.getResource(INVALIDATE_KEY);
+		if(null == names) {
+			final Set<String> pending = names = new LinkedHashSet<String>();
+			final OutputCacheManager manager = outputCacheManager;
+			TransactionSynchronizationManager.bindResource(INVALIDATE_KEY, pending);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void suspend() {
+					TransactionSynchronizationManager.unbindResource(INVALIDATE_KEY);
+				}
+
+				@Override
+				public void resume() {
+					TransactionSynchronizationManager.bindResource(INVALIDATE_KEY, pending);
+				}
+
+				@Override
+				public void afterCommit() {
+					for (String item : pending) manager.invalidate(item);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(INVALIDATE_KEY);
+				}
+			});
+		}
+		names.add(name);
+	}
+	
 	/**
 	 * 将字符串转换为org.hibernate.criterion.Order列表
 	 * @param string
@@ -0,0 +1,98 @@
+package com.iisquare.smh.frame.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图，单位微秒
+ * 采用对数分段，每个2的幂区间再均分为4段，相对误差不超过25%
+ * 记录过程无锁且不产生对象分配
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 2;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 记录一次耗时
+	 * @param nanos 耗时纳秒数
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		buckets.incrementAndGet(bucketIndex(micros));
+		count.increment();
+		sum.add(micros);
+		long current;
+		while(micros > (current = max.get())) {
+			if(max.compareAndSet(current, micros)) break;
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * 获取百分位耗时
+	 * @param percentile 百分位，如0.99
+	 * @return 对应分段的上限值，单位微秒
+	 */
+	public long percentile(double percentile) {
+		long total = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if(0 == total) return 0;
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if(seen >= rank) return Math.min(bucketUpper(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * 获取统计快照，耗时单位为毫秒
+	 * @return
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		long total = count.sum();
+		map.put("count", total);
+		map.put("mean", 0 == total ? 0.0 : millis(sum.sum() / (double) total));
+		map.put("p50", millis(percentile(0.5)));
+		map.put("p90", millis(percentile(0.9)));
+		map.put("p99", millis(percentile(0.99)));
+		map.put("max", millis(max.get()));
+		return map;
+	}
+
+	private static double millis(double micros) {
+		return Math.round(micros) / 1000.0;
+	}
+
+	static int bucketIndex(long value) {
+		if(value < SUB_COUNT) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	static long bucketUpper(int index) {
+		if(index < SUB_COUNT) return index;
+		int exponent = index / SUB_COUNT + SUB_BITS - 1;
+		long lower = (long) (SUB_COUNT + index % SUB_COUNT) << (exponent - SUB_BITS);
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
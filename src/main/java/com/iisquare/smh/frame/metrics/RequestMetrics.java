@@ -0,0 +1,157 @@
+package com.iisquare.smh.frame.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.sf.json.JSONObject;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * 请求耗时统计，按/Module/Controller/Action分别记录
+ * Action执行、视图渲染及请求总耗时，可定时输出至日志
+ */
+public class RequestMetrics implements InitializingBean, DisposableBean {
+
+	static Log log = LogFactory.getLog(RequestMetrics.class);
+	private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<String, Route>();
+	private boolean enabled = true; // 是否启用统计
+	private int dumpInterval = 0; // 定时输出日志的间隔，单位秒，0为不输出
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * 单个路由的统计信息
+	 */
+	public static class Route {
+		private final LatencyHistogram action = new LatencyHistogram();
+		private final LatencyHistogram render = new LatencyHistogram();
+		private final LatencyHistogram total = new LatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder rejected = new LongAdder(); // 被限流拒绝的次数，同时计入errors
+
+		public Map<String, Object> snapshot() {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			map.put("count", total.getCount());
+			map.put("errors", errors.sum());
+			map.put("rejected", rejected.sum());
+			map.put("action", action.snapshot());
+			map.put("render", render.snapshot());
+			map.put("total", total.snapshot());
+			return map;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getDumpInterval() {
+		return dumpInterval;
+	}
+
+	public void setDumpInterval(int dumpInterval) {
+		this.dumpInterval = dumpInterval;
+	}
+
+	public RequestMetrics() {
+
+	}
+
+	/**
+	 * 记录一次请求
+	 * @param key 路由名称
+	 * @param actionNanos Action执行耗时，小于0时不记录
+	 * @param renderNanos 视图渲染耗时，小于0时不记录
+	 * @param totalNanos 请求总耗时
+	 * @param error 是否发生错误
+	 */
+	public void record(String key, long actionNanos, long renderNanos, long totalNanos, boolean error) {
+		if(!enabled) return;
+		Route route = route(key);
+		if(actionNanos >= 0) route.action.record(actionNanos);
+		if(renderNanos >= 0) route.render.record(renderNanos);
+		route.total.record(totalNanos);
+		if(error) route.errors.increment();
+	}
+
+	/**
+	 * 记录一次被限流拒绝的请求，计入请求总耗时及错误次数
+	 * @param key 路由名称
+	 * @param totalNanos 请求总耗时
+	 */
+	public void reject(String key, long totalNanos) {
+		if(!enabled) return;
+		Route route = route(key);
+		route.total.record(totalNanos);
+		route.errors.increment();
+		route.rejected.increment();
+	}
+
+	private Route route(String key) {
+		Route route = routes.get(key);
+		if(null == route) {
+			route = new Route();
+			Route exists = routes.putIfAbsent(key, route);
+			if(null != exists) route = exists;
+		}
+		return route;
+	}
+
+	/**
+	 * 获取全部路由的统计快照
+	 * @return 按路由名称排序
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> map = new TreeMap<String, Object>();
+		for (Map.Entry<String, Route> item : routes.entrySet()) {
+			map.put(item.getKey(), item.getValue().snapshot());
+		}
+		return map;
+	}
+
+	/**
+	 * 清空统计信息
+	 */
+	public void reset() {
+		routes.clear();
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if(dumpInterval < 1) return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "frame-metrics-dump");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				if(routes.isEmpty()) return;
+				log.info("request metrics: " + JSONObject.fromObject(snapshot()).toString());
+			}
+		}, dumpInterval, dumpInterval, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if(null != scheduler) scheduler.shutdownNow();
+	}
+}
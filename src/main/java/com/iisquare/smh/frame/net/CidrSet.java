@@ -0,0 +1,98 @@
+package com.iisquare.smh.frame.net;
+
+import java.util.Arrays;
+
+/**
+ * CIDR网段集合，采用数组存储的二叉前缀树，IPv4与IPv6分别存储
+ * 初始化后只读，可在多线程中共享
+ */
+public class CidrSet {
+
+	private final Trie v4 = new Trie();
+	private final Trie v6 = new Trie();
+
+	/**
+	 * 二叉前缀树，节点的左右子节点及终止标识分别存储在数组中
+	 */
+	static class Trie {
+		int[] children = new int[16]; // 节点i的子节点位于children[2i]和children[2i+1]，0为不存在
+		boolean[] terminal = new boolean[8];
+		int size = 1; // 节点0为根节点
+
+		void add(byte[] address, int prefix) {
+			int node = 0;
+			for (int i = 0; i < prefix; i++) {
+				if(terminal[node]) return; // 已包含更大的网段
+				int bit = (address[i >> 3] >> (7 - (i & 7))) & 1;
+				int child = children[2 * node + bit];
+				if(0 == child) {
+					child = size++;
+					if(size > terminal.length) {
+						terminal = Arrays.copyOf(terminal, terminal.length * 2);
+						children = Arrays.copyOf(children, children.length * 2);
+					}
+					children[2 * node + bit] = child;
+				}
+				node = child;
+			}
+			terminal[node] = true;
+		}
+
+		boolean contains(byte[] address) {
+			int node = 0;
+			int bits = address.length * 8;
+			for (int i = 0; i < bits; i++) {
+				if(terminal[node]) return true;
+				node = children[2 * node + ((address[i >> 3] >> (7 - (i & 7))) & 1)];
+				if(0 == node) return false;
+			}
+			return terminal[node];
+		}
+	}
+
+	/**
+	 * 添加网段，如192.168.0.0/16、::1/128，省略前缀长度时为单个地址
+	 * @throws IllegalArgumentException 格式错误时抛出
+	 */
+	public CidrSet add(String cidr) {
+		cidr = cidr.trim();
+		int index = cidr.indexOf('/');
+		byte[] address = IpAddress.parse(-1 == index ? cidr : cidr.substring(0, index));
+		if(null == address) throw new IllegalArgumentException("invalid cidr " + cidr);
+		int prefix = address.length * 8;
+		if(-1 != index) {
+			try {
+				prefix = Integer.parseInt(cidr.substring(index + 1).trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid cidr " + cidr);
+			}
+			if(prefix < 0 || prefix > address.length * 8) throw new IllegalArgumentException("invalid cidr " + cidr);
+		}
+		(4 == address.length ? v4 : v6).add(address, prefix);
+		return this;
+	}
+
+	/**
+	 * 添加以逗号分隔的多个网段
+	 */
+	public CidrSet addAll(String cidrs) {
+		if(null == cidrs) return this;
+		for (String cidr : cidrs.split(",")) {
+			if(cidr.trim().length() > 0) add(cidr);
+		}
+		return this;
+	}
+
+	public boolean contains(byte[] address) {
+		if(null == address) return false;
+		return (4 == address.length ? v4 : v6).contains(address);
+	}
+
+	public boolean contains(String address) {
+		return contains(IpAddress.parse(address));
+	}
+
+	public boolean isEmpty() {
+		return 1 == v4.size && !v4.terminal[0] && 1 == v6.size && !v6.terminal[0];
+	}
+}
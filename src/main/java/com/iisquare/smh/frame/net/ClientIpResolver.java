@@ -0,0 +1,122 @@
+package com.iisquare.smh.frame.net;
+
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * 客户端IP解析，仅当直接连接方为可信代理时才采用转发请求头
+ * 自右向左遍历X-Forwarded-For，返回第一个不属于可信代理的地址，全部可信时返回最左侧地址
+ * 未携带转发链时返回直接连接方地址，不采用可被客户端伪造的Proxy-Client-IP等请求头
+ * 解析结果缓存在请求属性中
+ */
+public class ClientIpResolver implements InitializingBean {
+
+	public static final String ATTRIBUTE_NAME = ClientIpResolver.class.getName();
+	private static final ClientIpResolver DEFAULT = new ClientIpResolver();
+	private static volatile ClientIpResolver instance = DEFAULT; // 当前启用的解析器
+	private String trustedProxies = "127.0.0.0/8,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,::1/128,fc00::/7"; // 可信代理网段，以逗号分隔
+	private String header = "X-Forwarded-For"; // 转发链请求头
+	private CidrSet trusted = new CidrSet().addAll(trustedProxies);
+
+	public static ClientIpResolver getInstance() {
+		return instance;
+	}
+
+	public String getTrustedProxies() {
+		return trustedProxies;
+	}
+
+	public void setTrustedProxies(String trustedProxies) {
+		this.trustedProxies = trustedProxies;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public void setHeader(String header) {
+		this.header = header;
+	}
+
+	public ClientIpResolver() {
+
+	}
+
+	/**
+	 * 获取客户端IP地址，同一请求仅解析一次
+	 */
+	public static String resolve(HttpServletRequest request) {
+		String address = (String) request.getAttribute(ATTRIBUTE_NAME);
+		if(null == address) {
+			address = instance.resolveAddress(request);
+			if(null != address) request.setAttribute(ATTRIBUTE_NAME, address);
+		}
+		return address;
+	}
+
+	/**
+	 * 判断是否为可信代理地址
+	 */
+	public boolean isTrusted(String address) {
+		return trusted.contains(address);
+	}
+
+	public String resolveAddress(HttpServletRequest request) {
+		String remote = request.getRemoteAddr();
+		if(!isTrusted(remote)) return remote;
+		String candidate = null;
+		Enumeration<String> values = request.getHeaders(header);
+		if(null != values && values.hasMoreElements()) {
+			String chain = values.nextElement();
+			while(values.hasMoreElements()) chain = chain + "," + values.nextElement();
+			int end = chain.length();
+			while(end > 0) {
+				int start = chain.lastIndexOf(',', end - 1) + 1;
+				String address = address(chain, start, end);
+				if(null == address) break; // 格式错误时不再信任更左侧的地址
+				candidate = address;
+				if(!isTrusted(address)) return address;
+				end = start - 1;
+			}
+			if(null != candidate) return candidate;
+		}
+		return remote;
+	}
+
+	/**
+	 * 提取转发链中的单个地址，去除空白、引号、方括号及端口
+	 * @return 不是合法IP地址时返回null
+	 */
+	static String address(String chain, int start, int end) {
+		while(start < end && chain.charAt(start) <= ' ') start++;
+		while(end > start && chain.charAt(end - 1) <= ' ') end--;
+		if(end - start >= 2 && '"' == chain.charAt(start) && '"' == chain.charAt(end - 1)) {
+			start++;
+			end--;
+		}
+		if(start >= end) return null;
+		if('[' == chain.charAt(start)) { // [IPv6]:port
+			int close = chain.indexOf(']', start);
+			if(-1 == close || close >= end) return null;
+			start++;
+			end = close;
+		} else {
+			int colon = chain.indexOf(':', start);
+			if(-1 != colon && colon < end) {
+				int next = chain.indexOf(':', colon + 1);
+				if(-1 == next || next >= end) end = colon; // IPv4:port
+			}
+		}
+		if(null == IpAddress.parse(chain, start, end)) return null;
+		return chain.substring(start, end);
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		trusted = new CidrSet().addAll(trustedProxies);
+		instance = this;
+	}
+}
@@ -0,0 +1,102 @@
+package com.iisquare.smh.frame.net;
+
+/**
+ * IP地址解析，仅处理字面地址，不进行域名解析
+ */
+public class IpAddress {
+
+	/**
+	 * 解析IPv4或IPv6地址，IPv4映射的IPv6地址转换为IPv4
+	 * @return 4或16字节地址，格式错误时返回null
+	 */
+	public static byte[] parse(String address) {
+		if(null == address) return null;
+		return parse(address, 0, address.length());
+	}
+
+	public static byte[] parse(String address, int start, int end) {
+		int zone = address.indexOf('%', start); // 忽略IPv6的区域标识
+		if(-1 != zone && zone < end) end = zone;
+		if(start >= end) return null;
+		if(address.indexOf(':', start) < 0 || address.indexOf(':', start) >= end) {
+			byte[] bytes = new byte[4];
+			return parseV4(address, start, end, bytes, 0) ? bytes : null;
+		}
+		byte[] bytes = parseV6(address, start, end);
+		if(null == bytes) return null;
+		for (int i = 0; i < 10; i++) { // ::ffff:a.b.c.d
+			if(0 != bytes[i]) return bytes;
+		}
+		if(-1 != bytes[10] || -1 != bytes[11]) return bytes;
+		return new byte[] {bytes[12], bytes[13], bytes[14], bytes[15]};
+	}
+
+	private static boolean parseV4(String address, int start, int end, byte[] bytes, int offset) {
+		int part = 0, value = 0, digits = 0;
+		for (int i = start; i < end; i++) {
+			char ch = address.charAt(i);
+			if(ch >= '0' && ch <= '9') {
+				if(digits > 0 && 0 == value) return false; // 不允许前导零
+				value = value * 10 + (ch - '0');
+				if(value > 255 || ++digits > 3) return false;
+			} else if('.' == ch) {
+				if(0 == digits || part >= 3) return false;
+				bytes[offset + part++] = (byte) value;
+				value = 0;
+				digits = 0;
+			} else {
+				return false;
+			}
+		}
+		if(0 == digits || 3 != part) return false;
+		bytes[offset + part] = (byte) value;
+		return true;
+	}
+
+	private static byte[] parseV6(String address, int start, int end) {
+		byte[] bytes = new byte[16];
+		int index = 0, compress = -1;
+		int i = start;
+		if(end - start >= 2 && ':' == address.charAt(i) && ':' == address.charAt(i + 1)) {
+			compress = 0;
+			i += 2;
+			if(i == end) return bytes;
+		}
+		while(i < end) {
+			if(index >= 16) return null;
+			int value = 0, digits = 0, groupStart = i;
+			while(i < end) {
+				int digit = Character.digit(address.charAt(i), 16);
+				if(-1 == digit) break;
+				value = (value << 4) | digit;
+				if(++digits > 4) return null;
+				i++;
+			}
+			if(i < end && '.' == address.charAt(i)) { // 末尾的IPv4地址
+				if(index > 12 || !parseV4(address, groupStart, end, bytes, index)) return null;
+				index += 4;
+				break;
+			}
+			if(0 == digits) return null;
+			bytes[index++] = (byte) (value >> 8);
+			bytes[index++] = (byte) value;
+			if(i == end) break;
+			if(':' != address.charAt(i)) return null;
+			i++;
+			if(i < end && ':' == address.charAt(i)) {
+				if(-1 != compress) return null;
+				compress = index;
+				i++;
+				if(i == end) break;
+			} else if(i == end) {
+				return null;
+			}
+		}
+		if(-1 == compress) return 16 == index ? bytes : null;
+		if(16 == index) return null;
+		int move = index - compress;
+		System.arraycopy(bytes, compress, bytes, 16 - move, move);
+		for (int j = compress; j < 16 - move; j++) bytes[j] = 0;
+		return bytes;
+	}
+}
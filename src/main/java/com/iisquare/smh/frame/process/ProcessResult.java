@@ -0,0 +1,62 @@
+package com.iisquare.smh.frame.process;
+
+/**
+ * 外部进程的执行结果
+ */
+public class ProcessResult {
+
+	private final int exitCode;
+	private final String output;
+	private final boolean timedOut;
+	private final boolean truncated;
+	private final long duration;
+
+	public ProcessResult(int exitCode, String output, boolean timedOut, boolean truncated, long duration) {
+		this.exitCode = exitCode;
+		this.output = output;
+		this.timedOut = timedOut;
+		this.truncated = truncated;
+		this.duration = duration;
+	}
+
+	/**
+	 * 退出码，超时被终止时为-1
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * 标准输出及错误输出的合并内容，指定了输出处理器时同样保留
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * 输出是否超出保留长度而被截断
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * 执行耗时，单位毫秒
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public boolean isSuccess() {
+		return !timedOut && 0 == exitCode;
+	}
+
+	@Override
+	public String toString() {
+		return "ProcessResult[exitCode=" + exitCode + ", timedOut=" + timedOut + ", duration=" + duration + "ms]";
+	}
+}
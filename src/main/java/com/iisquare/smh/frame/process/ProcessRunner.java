@@ -0,0 +1,352 @@
+package com.iisquare.smh.frame.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.iisquare.smh.frame.metrics.LatencyHistogram;
+import com.iisquare.smh.frame.util.FileUtil;
+
+/**
+ * 外部进程执行器，限制同时运行的进程数及等待队列长度，队列已满时拒绝执行
+ * 标准输出与错误输出合并后持续读取，避免缓冲区写满导致子进程阻塞，可逐行回调
+ * 超时或取消时强制终止进程，关闭时终止全部运行中的进程
+ */
+public class ProcessRunner implements InitializingBean, DisposableBean {
+
+	static Log log = LogFactory.getLog(ProcessRunner.class);
+	private static final long KILL_WAIT = 5000; // 强制终止后等待进程退出的时间，单位毫秒
+	private static final long DRAIN_WAIT = 1000; // 进程退出后等待输出读取完毕的时间，单位毫秒
+	private static final Method DESCENDANTS, DESTROY_HANDLE; // JDK 9的Process.descendants及ProcessHandle.destroyForcibly
+	private static volatile ProcessRunner instance = new ProcessRunner(); // 当前启用的执行器
+	private int maxConcurrent = 4; // 同时运行的最大进程数
+	private int maxQueue = 16; // 等待执行的最大任务数
+	private long timeout = 60000; // 默认超时时间，单位毫秒，0为不限制
+	private int maxOutput = 65536; // 保留的最大输出字节数，超出部分丢弃
+	private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger running = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LatencyHistogram duration = new LatencyHistogram();
+	private ThreadPoolExecutor executor;
+	private ExecutorService drainer;
+
+	static {
+		Method descendants = null, destroy = null;
+		try {
+			descendants = Process.class.getMethod("descendants");
+			destroy = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+		} catch (Exception e) {
+			descendants = destroy = null;
+		}
+		DESCENDANTS = descendants;
+		DESTROY_HANDLE = destroy;
+	}
+
+	/**
+	 * 输出处理器，在读取输出的线程中调用
+	 */
+	public interface OutputHandler {
+		/**
+		 * @param line 单行输出，不含换行
+		 */
+		void line(String line);
+	}
+
+	public static ProcessRunner getInstance() {
+		return instance;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public int getMaxQueue() {
+		return maxQueue;
+	}
+
+	public void setMaxQueue(int maxQueue) {
+		this.maxQueue = maxQueue;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public int getMaxOutput() {
+		return maxOutput;
+	}
+
+	public void setMaxOutput(int maxOutput) {
+		this.maxOutput = maxOutput;
+	}
+
+	public ProcessRunner() {
+
+	}
+
+	private static ThreadFactory threadFactory(final String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger index = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	private synchronized ThreadPoolExecutor executor() {
+		if(null == executor) {
+			executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(Math.max(1, maxQueue)), threadFactory("frame-process"));
+			executor.allowCoreThreadTimeOut(true);
+			drainer = Executors.newCachedThreadPool(threadFactory("frame-process-output"));
+		}
+		return executor;
+	}
+
+	/**
+	 * 提交命令，采用默认超时时间
+	 * @see #submit(List, long, OutputHandler)
+	 */
+	public Future<ProcessResult> submit(List<String> command) {
+		return submit(command, timeout, null);
+	}
+
+	/**
+	 * 提交命令
+	 * @param command 命令及参数
+	 * @param timeout 超时时间，单位毫秒，0为不限制
+	 * @param handler 输出处理器，可为null
+	 * @return 执行结果，进程无法启动时以ExecutionException抛出原因，取消时终止进程
+	 * @throws RejectedExecutionException 等待队列已满或执行器已关闭时抛出
+	 */
+	public Future<ProcessResult> submit(final List<String> command, final long timeout, final OutputHandler handler) {
+		ThreadPoolExecutor executor = executor();
+		submitted.increment();
+		try {
+			return executor.submit(new Callable<ProcessResult>() {
+				@Override
+				public ProcessResult call() throws Exception {
+					return run(command, timeout, handler);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw e;
+		}
+	}
+
+	private ProcessResult run(List<String> command, long timeout, OutputHandler handler) throws Exception {
+		long start = System.nanoTime();
+		running.incrementAndGet();
+		Process process = null;
+		InputStream in = null;
+		try {
+			try {
+				process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			} catch (IOException e) {
+				errors.increment();
+				throw e;
+			}
+			processes.add(process);
+			process.getOutputStream().close(); // 不向子进程提供输入
+			final InputStream stream = in = process.getInputStream();
+			final OutputCollector collector = new OutputCollector(maxOutput, handler);
+			Future<?> drain = drainer.submit(new Runnable() {
+				@Override
+				public void run() {
+					collector.drain(stream);
+				}
+			});
+			boolean exited;
+			if(timeout > 0) {
+				exited = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				process.waitFor();
+				exited = true;
+			}
+			if(!exited) {
+				timedOut.increment();
+				log.warn("process " + command + " timed out after " + timeout + "ms, killed");
+				destroy(process);
+				process.waitFor(KILL_WAIT, TimeUnit.MILLISECONDS);
+			}
+			try {
+				drain.get(DRAIN_WAIT, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) { // 子进程派生的进程仍持有输出管道
+				drain.cancel(true);
+			} catch (ExecutionException e) {
+				log.error("process output handler failed", e.getCause());
+			}
+			int exitCode = exited ? process.exitValue() : -1;
+			if(exited) {
+				completed.increment();
+				if(0 != exitCode) failed.increment();
+			}
+			return new ProcessResult(exitCode, collector.toString(), !exited, collector.truncated,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} catch (InterruptedException e) { // 任务被取消或执行器关闭
+			if(null != process) destroy(process);
+			throw e;
+		} finally {
+			FileUtil.close(in);
+			if(null != process) processes.remove(process);
+			running.decrementAndGet();
+			duration.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * 强制终止进程，运行于JDK 9及以上时同时终止其派生的进程，如sh -c启动的命令
+	 */
+	static void destroy(Process process) {
+		if(null != DESCENDANTS) {
+			try {
+				Stream<?> descendants = (Stream<?>) DESCENDANTS.invoke(process);
+				for (Object handle : descendants.toArray()) DESTROY_HANDLE.invoke(handle);
+			} catch (Exception e) {
+				log.warn("destroy descendants of process failed", e);
+			}
+		}
+		process.destroyForcibly();
+	}
+
+	/**
+	 * 读取进程输出，保留前maxOutput个字节，按行回调处理器
+	 */
+	static class OutputCollector {
+		private final int maxOutput;
+		private final OutputHandler handler;
+		private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		private final Charset charset = Charset.defaultCharset(); // 命令行输出采用系统编码
+		volatile boolean truncated = false;
+
+		OutputCollector(int maxOutput, OutputHandler handler) {
+			this.maxOutput = maxOutput;
+			this.handler = handler;
+		}
+
+		void drain(InputStream in) {
+			byte[] buffer = new byte[8192];
+			try {
+				int count;
+				while((count = in.read(buffer)) >= 0) {
+					synchronized (output) {
+						int length = Math.min(count, maxOutput - output.size());
+						if(length > 0) output.write(buffer, 0, length);
+						if(length < count) truncated = true;
+					}
+					if(null == handler) continue;
+					int start = 0;
+					for (int i = 0; i < count; i++) {
+						if('\n' != buffer[i]) continue;
+						line.write(buffer, start, i - start);
+						flushLine();
+						start = i + 1;
+					}
+					line.write(buffer, start, count - start);
+				}
+			} catch (IOException e) {
+				// 进程被终止或输出流已关闭
+			}
+			if(null != handler && line.size() > 0) flushLine();
+		}
+
+		private void flushLine() {
+			byte[] bytes = line.toByteArray();
+			int length = bytes.length;
+			if(length > 0 && '\r' == bytes[length - 1]) length--;
+			line.reset();
+			handler.line(new String(bytes, 0, length, charset));
+		}
+
+		@Override
+		public String toString() {
+			synchronized (output) {
+				return new String(output.toByteArray(), charset);
+			}
+		}
+	}
+
+	/**
+	 * 获取统计信息
+	 */
+	public Map<String, Object> stats() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		ThreadPoolExecutor executor = this.executor;
+		map.put("maxConcurrent", maxConcurrent);
+		map.put("running", running.get());
+		map.put("queued", null == executor ? 0 : executor.getQueue().size());
+		map.put("submitted", submitted.sum());
+		map.put("rejected", rejected.sum());
+		map.put("completed", completed.sum());
+		map.put("failed", failed.sum());
+		map.put("timedOut", timedOut.sum());
+		map.put("errors", errors.sum());
+		map.put("duration", duration.snapshot());
+		return map;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		executor();
+		ProcessRunner previous = instance;
+		instance = this;
+		if(previous != this) previous.destroy();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		ExecutorService executor, drainer;
+		synchronized (this) {
+			executor = this.executor;
+			drainer = this.drainer;
+		}
+		if(null != executor) executor.shutdownNow();
+		if(null != drainer) drainer.shutdownNow();
+		for (Process process : processes) destroy(process);
+	}
+}
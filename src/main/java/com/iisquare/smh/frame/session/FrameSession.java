@@ -0,0 +1,298 @@
+package com.iisquare.smh.frame.session;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.iisquare.smh.frame.cookie.RequestCookies;
+
+/**
+ * 会话访问入口，每个请求对应一个实例
+ * 读取时不会创建会话，仅在写入时创建；属性按需读取，不复制整个会话
+ * 启用SessionStore时会话数据保存在本地存储中，请求结束时写回，修改属性值内部状态后需重新调用set
+ * 新建会话时尚未关联响应对象的，会话Cookie在关联响应时写入，始终未关联时不保存该会话
+ * 批量请求的子请求共享父请求的实例，因此各方法均加锁
+ */
+public class FrameSession {
+
+	static Log log = LogFactory.getLog(FrameSession.class);
+	public static final String ATTRIBUTE_NAME = FrameSession.class.getName();
+	private final HttpServletRequest request;
+	private HttpServletResponse response;
+	private final SessionStore store;
+	private String id; // 本地存储的会话标识
+	private Map<String, Object> attributes; // 本地存储的会话属性
+	private boolean loaded = false, dirty = false;
+	private boolean cookiePending = false; // 新建会话的Cookie尚未写入
+	private boolean shared = false; // 是否由多个线程共享
+
+	private FrameSession(HttpServletRequest request, HttpServletResponse response, SessionStore store) {
+		this.request = request;
+		this.response = response;
+		this.store = store;
+	}
+
+	/**
+	 * 获取当前请求的会话
+	 */
+	public static FrameSession get(HttpServletRequest request) {
+		FrameSession session = (FrameSession) request.getAttribute(ATTRIBUTE_NAME);
+		if(null == session) {
+			session = new FrameSession(request, null, SessionStore.getInstance());
+			request.setAttribute(ATTRIBUTE_NAME, session);
+		}
+		return session;
+	}
+
+	/**
+	 * 关联响应对象，启用本地存储时用于写入会话Cookie，已关联时保持不变
+	 */
+	public static FrameSession bind(HttpServletRequest request, HttpServletResponse response) {
+		FrameSession session = get(request);
+		synchronized (session) {
+			if(null == session.response) {
+				session.response = response;
+				if(session.cookiePending) {
+					session.cookiePending = false;
+					session.writeCookie(session.id, -1);
+				}
+			}
+		}
+		return session;
+	}
+
+	/**
+	 * 标记为多个线程共享，getAll返回属性的副本
+	 */
+	public synchronized FrameSession share() {
+		shared = true;
+		if(null != store) load(); // 在创建者线程中读取会话Cookie
+		return this;
+	}
+
+	/**
+	 * 请求结束时将修改写回本地存储
+	 */
+	public static void commit(HttpServletRequest request) {
+		FrameSession session = (FrameSession) request.getAttribute(ATTRIBUTE_NAME);
+		if(null != session) session.commit();
+	}
+
+	/**
+	 * 是否使用本地存储
+	 */
+	public boolean isStored() {
+		return null != store;
+	}
+
+	/**
+	 * 获取会话标识，会话不存在时返回null
+	 */
+	public synchronized String getId() {
+		if(null == store) {
+			HttpSession session = request.getSession(false);
+			return null == session ? null : session.getId();
+		}
+		load();
+		return null == attributes ? null : id;
+	}
+
+	public synchronized Object get(String key) {
+		if(null == store) {
+			HttpSession session = request.getSession(false);
+			return null == session ? null : session.getAttribute(key);
+		}
+		load();
+		return null == attributes ? null : attributes.get(key);
+	}
+
+	/**
+	 * 获取全部会话属性的只读视图
+	 */
+	public synchronized Map<String, Object> getAll() {
+		if(null == store) {
+			HttpSession session = request.getSession(false);
+			if(null == session) return Collections.emptyMap();
+			return new SessionAttributeMap(session);
+		}
+		load();
+		if(null == attributes) return Collections.emptyMap();
+		return Collections.unmodifiableMap(shared ? new HashMap<String, Object>(attributes) : attributes);
+	}
+
+	public synchronized void set(String key, Object value) {
+		if(null == store) {
+			request.getSession().setAttribute(key, value);
+			return;
+		}
+		create();
+		if(null == value) {
+			attributes.remove(key);
+		} else {
+			attributes.put(key, value);
+		}
+		dirty = true;
+	}
+
+	public synchronized void setAll(Map<String, Object> map) {
+		for (Map.Entry<String, Object> item : map.entrySet()) {
+			set(item.getKey(), item.getValue());
+		}
+	}
+
+	public synchronized void remove(String key) {
+		if(null == store) {
+			HttpSession session = request.getSession(false);
+			if(null != session) session.removeAttribute(key);
+			return;
+		}
+		load();
+		if(null == attributes || null == attributes.remove(key)) return;
+		dirty = true;
+	}
+
+	/**
+	 * 销毁会话，会话不存在时不做任何处理
+	 */
+	public synchronized void invalidate() {
+		if(null == store) {
+			HttpSession session = request.getSession(false);
+			if(null != session) session.invalidate();
+			return;
+		}
+		load();
+		if(null == id) return;
+		store.remove(id);
+		if(cookiePending) {
+			cookiePending = false;
+		} else if(null != response) {
+			writeCookie(id, 0);
+		}
+		id = null;
+		attributes = null;
+		dirty = false;
+	}
+
+	/**
+	 * 将修改写回本地存储
+	 */
+	public synchronized void commit() {
+		if(!dirty) return;
+		dirty = false;
+		if(cookiePending) { // 客户端无法获得会话标识，不保存
+			log.warn("session " + request.getRequestURI() + " was created without response, discarded");
+			return;
+		}
+		store.save(id, attributes);
+	}
+
+	/**
+	 * 根据Cookie中的会话标识读取本地存储
+	 */
+	private void load() {
+		if(loaded) return;
+		loaded = true;
+		String value = RequestCookies.get(request).get(store.getSessionName());
+		if(null == value) return;
+		attributes = store.load(value);
+		if(null != attributes) id = value;
+	}
+
+	/**
+	 * 会话不存在时创建新会话
+	 */
+	private void create() {
+		load();
+		if(null != attributes) return;
+		id = store.createId();
+		attributes = new HashMap<String, Object>();
+		if(null == response) {
+			cookiePending = true;
+		} else {
+			writeCookie(id, -1);
+		}
+	}
+
+	private void writeCookie(String value, int maxAge) {
+		Cookie cookie = new Cookie(store.getSessionName(), value);
+		String path = request.getContextPath();
+		cookie.setPath(null == path || path.length() < 1 ? "/" : path);
+		cookie.setHttpOnly(true);
+		cookie.setSecure(request.isSecure());
+		cookie.setMaxAge(maxAge);
+		response.addCookie(cookie);
+	}
+
+	/**
+	 * 容器会话属性的只读视图
+	 */
+	static class SessionAttributeMap extends AbstractMap<String, Object> {
+
+		private final HttpSession session;
+
+		SessionAttributeMap(HttpSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public Object get(Object key) {
+			return null == key ? null : session.getAttribute(key.toString());
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return null != get(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					final Enumeration<String> names = session.getAttributeNames();
+					return new Iterator<Map.Entry<String, Object>>() {
+						@Override
+						public boolean hasNext() {
+							return names.hasMoreElements();
+						}
+
+						@Override
+						public Map.Entry<String, Object> next() {
+							if(!names.hasMoreElements()) throw new NoSuchElementException();
+							String name = names.nextElement();
+							return new SimpleImmutableEntry<String, Object>(name, session.getAttribute(name));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					int size = 0;
+					for (Enumeration<String> names = session.getAttributeNames(); names.hasMoreElements(); names.nextElement()) {
+						size++;
+					}
+					return size;
+				}
+			};
+		}
+	}
+}
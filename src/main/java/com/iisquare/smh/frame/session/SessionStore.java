@@ -0,0 +1,253 @@
+package com.iisquare.smh.frame.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.iisquare.smh.frame.util.HashUtil;
+
+/**
+ * 本地会话存储，会话属性序列化为紧凑的字节数据保存，空闲会话不再占用对象内存
+ * 会话标识通过名称为sessionName的Cookie传递，默认名称与容器的JSESSIONID不同，超过ttl未访问时自动清除
+ * 启用后ServletUtil及FrameSession的会话操作均使用此存储，属性值需实现Serializable
+ */
+public class SessionStore implements InitializingBean, DisposableBean {
+
+	static Log log = LogFactory.getLog(SessionStore.class);
+	private static volatile SessionStore instance; // 当前启用的会话存储
+	private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<String, Entry>();
+	private String sessionName = "FRAMESESSID"; // 会话Cookie名称，不应与容器会话的Cookie相同
+	private boolean enabled = false; // 是否启用，未启用时使用容器会话
+	private int ttl = 1800; // 会话有效期，单位秒
+	private int sweepInterval = 60; // 清理过期会话的间隔，单位秒
+	private boolean compress = true; // 是否压缩序列化数据
+	private boolean offHeap = false; // 是否将序列化数据保存在堆外内存
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * 单个会话的存储数据
+	 */
+	static class Entry {
+		final Object data; // byte[]或ByteBuffer
+		volatile long expireTime;
+
+		Entry(Object data, long expireTime) {
+			this.data = data;
+			this.expireTime = expireTime;
+		}
+	}
+
+	public static SessionStore getInstance() {
+		return instance;
+	}
+
+	public String getSessionName() {
+		return sessionName;
+	}
+
+	public void setSessionName(String sessionName) {
+		this.sessionName = sessionName;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(int ttl) {
+		this.ttl = ttl;
+	}
+
+	public int getSweepInterval() {
+		return sweepInterval;
+	}
+
+	public void setSweepInterval(int sweepInterval) {
+		this.sweepInterval = sweepInterval;
+	}
+
+	public boolean isCompress() {
+		return compress;
+	}
+
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+
+	public SessionStore() {
+
+	}
+
+	/**
+	 * 生成新的会话标识
+	 */
+	public String createId() {
+		return HashUtil.randomHex(16);
+	}
+
+	/**
+	 * 读取会话属性，同时延长有效期
+	 * @param id 会话标识
+	 * @return 会话不存在或已过期时返回null
+	 */
+	public Map<String, Object> load(String id) {
+		Entry entry = sessions.get(id);
+		if(null == entry) return null;
+		long now = System.currentTimeMillis();
+		if(entry.expireTime < now) {
+			sessions.remove(id, entry);
+			return null;
+		}
+		entry.expireTime = now + ttl * 1000L;
+		try {
+			return deserialize(entry.data);
+		} catch (Exception e) {
+			log.warn("session " + id + " deserialize failed", e);
+			sessions.remove(id, entry);
+			return null;
+		}
+	}
+
+	/**
+	 * 保存会话属性
+	 * @param id 会话标识
+	 * @param attributes 会话属性
+	 * @return 序列化失败时返回false
+	 */
+	public boolean save(String id, Map<String, Object> attributes) {
+		try {
+			sessions.put(id, new Entry(serialize(attributes), System.currentTimeMillis() + ttl * 1000L));
+			return true;
+		} catch (IOException e) {
+			log.error("session " + id + " serialize failed", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 判断会话是否存在
+	 */
+	public boolean contains(String id) {
+		Entry entry = sessions.get(id);
+		return null != entry && entry.expireTime >= System.currentTimeMillis();
+	}
+
+	public void remove(String id) {
+		sessions.remove(id);
+	}
+
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * 清除已过期的会话
+	 */
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Entry> iterator = sessions.values().iterator(); iterator.hasNext();) {
+			if(iterator.next().expireTime < now) iterator.remove();
+		}
+	}
+
+	private Object serialize(Map<String, Object> attributes) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		ObjectOutputStream out = new ObjectOutputStream(compress ? new DeflaterOutputStream(bytes) : bytes);
+		out.writeObject(new HashMap<String, Object>(attributes));
+		out.close();
+		byte[] data = bytes.toByteArray();
+		if(!offHeap) return data;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data).flip();
+		return buffer;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> deserialize(Object data) throws IOException, ClassNotFoundException {
+		byte[] bytes;
+		if(data instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) data).duplicate();
+			bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+		} else {
+			bytes = (byte[]) data;
+		}
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		ObjectInputStream stream = new ObjectInputStream(compress ? new InflaterInputStream(in) : in) {
+			@Override
+			protected Class<?> resolveClass(java.io.ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+				try { // 优先使用应用类加载器
+					return Class.forName(desc.getName(), false, Thread.currentThread().getContextClassLoader());
+				} catch (ClassNotFoundException e) {
+					return super.resolveClass(desc);
+				}
+			}
+		};
+		try {
+			return (Map<String, Object>) stream.readObject();
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if(!enabled) return;
+		instance = this;
+		if(sweepInterval < 1) return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "frame-session-sweep");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if(this == instance) instance = null;
+		if(null != scheduler) scheduler.shutdownNow();
+		sessions.clear();
+	}
+}
@@ -0,0 +1,50 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * 线程池拒绝执行时输出503，格式与RouteLimiter拒绝时一致
+ */
+public class AsyncRejectedExceptionResolver implements HandlerExceptionResolver, Ordered {
+
+	static Log log = LogFactory.getLog(AsyncRejectedExceptionResolver.class);
+	private int order = Ordered.HIGHEST_PRECEDENCE;
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+
+	public void setOrder(int order) {
+		this.order = order;
+	}
+
+	public AsyncRejectedExceptionResolver() {
+
+	}
+
+	@Override
+	public ModelAndView resolveException(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex) {
+		if(!(ex instanceof RejectedExecutionException)) return null; // TaskRejectedException为其子类
+		log.warn("request " + request.getRequestURI() + " rejected: " + ex.getMessage());
+		if(response.isCommitted()) return new ModelAndView();
+		try {
+			ControllerHandlerInterceptor.writeStatus(response,
+					HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service Unavailable");
+		} catch (IOException e) {
+			log.error("write rejected response failed", e);
+		}
+		return new ModelAndView();
+	}
+}
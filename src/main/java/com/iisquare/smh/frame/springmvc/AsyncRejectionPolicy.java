@@ -0,0 +1,39 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+
+/**
+ * 异步Action线程池已满时的拒绝策略，需同时配置为线程池的拒绝策略及RequestMappingHandlerAdapter的callableInterceptors
+ * springMVC在提交Callable前已开启异步处理，直接抛出异常会使请求一直等待至超时
+ * 因此在调用线程中以拒绝状态执行任务，由preProcess抛出TaskRejectedException，Callable本身不会在容器线程中执行
+ * 异常作为异步结果再次分派，由AsyncRejectedExceptionResolver输出503，该线程池仅应用于异步Action
+ */
+public class AsyncRejectionPolicy extends CallableProcessingInterceptorAdapter implements RejectedExecutionHandler {
+
+	private static final ThreadLocal<Boolean> rejected = new ThreadLocal<Boolean>();
+
+	public AsyncRejectionPolicy() {
+
+	}
+
+	@Override
+	public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+		rejected.set(Boolean.TRUE);
+		try {
+			runnable.run();
+		} finally {
+			rejected.remove();
+		}
+	}
+
+	@Override
+	public <T> void preProcess(NativeWebRequest request, Callable<T> task) throws Exception {
+		if(null != rejected.get()) throw new TaskRejectedException("async executor is full, callable " + task + " rejected");
+	}
+}
@@ -0,0 +1,532 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.i18n.SimpleLocaleContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.orm.hibernate4.SessionFactoryUtils;
+import org.springframework.orm.hibernate4.SessionHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.support.DefaultHandlerExceptionResolver;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.WebUtils;
+
+import com.iisquare.smh.frame.codec.MessageEncoder;
+
+/**
+ * 批量请求接口，在一次HTTP请求中执行多个Action并合并输出
+ * 请求方式：POST /batch，参数requests或请求体为JSON数组，每项格式为
+ * 	{"id" : "a", "method" : "GET", "url" : "/index/index/json?k=v", "params" : {}, "headers" : {}, "depends" : ["b"], "timeout" : 5000}
+ * 其中仅url为必填项，无依赖关系的子请求在线程池中并行执行，depends中的子请求全部完成后才会执行
+ * 子请求不能指向批量接口本身，全部子请求结束后才输出结果
+ * 返回格式与CController.displayMessage一致，message为各子请求的执行结果，顺序与请求一致
+ */
+@RequestMapping("/batch")
+public class BatchController implements InitializingBean, ApplicationContextAware {
+
+	static Log log = LogFactory.getLog(BatchController.class);
+	private static final String CONTENT_TYPE = "text/html;charset=utf-8";
+	/* 子请求仅使用自身设置的请求头 */
+	private static final String[] PRIVATE_HEADERS = {
+		"accept", "content-type", "content-length", "if-none-match", "if-modified-since", "if-match", "if-unmodified-since"
+	};
+	@Autowired
+	private ControllerRequestMappingHandlerMapping handlerMapping;
+	@Autowired
+	private RequestMappingHandlerAdapter handlerAdapter;
+	@Autowired
+	private List<ViewResolver> viewResolvers;
+	@Autowired(required = false)
+	private List<HandlerExceptionResolver> exceptionResolvers;
+	@Autowired(required = false)
+	private SessionFactory sessionFactory;
+	private AsyncTaskExecutor taskExecutor;
+	private ApplicationContext applicationContext;
+	private int maxRequests = 20; // 单次最多子请求数
+	private long timeout = 10000; // 子请求默认超时时间，单位毫秒
+
+	public AsyncTaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	public void setMaxRequests(int maxRequests) {
+		this.maxRequests = maxRequests;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	/**
+	 * 未配置HandlerExceptionResolver时，与DispatcherServlet一致采用默认的异常处理器
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		if(null != exceptionResolvers && !exceptionResolvers.isEmpty()) return;
+		ExceptionHandlerExceptionResolver handlerExceptionResolver = new ExceptionHandlerExceptionResolver();
+		handlerExceptionResolver.setApplicationContext(applicationContext);
+		handlerExceptionResolver.afterPropertiesSet();
+		exceptionResolvers = new ArrayList<HandlerExceptionResolver>(3);
+		exceptionResolvers.add(handlerExceptionResolver);
+		exceptionResolvers.add(new ResponseStatusExceptionResolver());
+		exceptionResolvers.add(new DefaultHandlerExceptionResolver());
+	}
+
+	/**
+	 * 单个子请求
+	 */
+	static class Item {
+		String id;
+		String method;
+		String url;
+		Map<String, String[]> params = new LinkedHashMap<String, String[]>();
+		Map<String, List<String>> headers;
+		Set<String> depends = new HashSet<String>();
+		long timeout;
+		Map<String, Object> result;
+	}
+
+	@RequestMapping(method = RequestMethod.POST)
+	public void batch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+		List<Item> items;
+		try {
+			items = parse(request);
+		} catch (Exception e) {
+			output(request, response, 400, e.getMessage());
+			return;
+		}
+		if(items.size() > maxRequests) {
+			output(request, response, 413, "too many requests, max " + maxRequests);
+			return;
+		}
+		execute(request, response, items);
+		List<Object> results = new ArrayList<Object>(items.size());
+		for (Item item : items) results.add(item.result);
+		output(request, response, 0, results);
+	}
+
+	/**
+	 * 解析子请求列表
+	 */
+	protected List<Item> parse(HttpServletRequest request) throws IOException {
+		String json = request.getParameter("requests");
+		if(null == json) {
+			StringBuilder sb = new StringBuilder();
+			BufferedReader reader = request.getReader();
+			char[] buffer = new char[1024];
+			int length;
+			while(-1 != (length = reader.read(buffer))) sb.append(buffer, 0, length);
+			json = sb.toString();
+		}
+		JSONArray array = JSONArray.fromObject(json);
+		Map<String, List<String>> parentHeaders = BatchRequestWrapper.snapshotHeaders(request);
+		for (String name : PRIVATE_HEADERS) parentHeaders.remove(name);
+		List<Item> items = new ArrayList<Item>(array.size());
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < array.size(); i++) {
+			JSONObject object = array.getJSONObject(i);
+			Item item = new Item();
+			item.id = object.optString("id", String.valueOf(i));
+			if(!ids.add(item.id)) throw new IllegalArgumentException("duplicate id " + item.id);
+			item.method = object.optString("method", "GET");
+			item.url = object.optString("url", "");
+			if(!item.url.startsWith("/")) throw new IllegalArgumentException("invalid url of " + item.id);
+			item.timeout = object.optLong("timeout", timeout);
+			if(item.timeout <= 0 || item.timeout > timeout) item.timeout = timeout;
+			JSONObject params = object.optJSONObject("params");
+			if(null != params) {
+				for (Iterator<?> iterator = params.keys(); iterator.hasNext();) {
+					String key = iterator.next().toString();
+					Object value = params.get(key);
+					if(value instanceof JSONArray) {
+						JSONArray values = (JSONArray) value;
+						String[] strings = new String[values.size()];
+						for (int j = 0; j < strings.length; j++) strings[j] = values.getString(j);
+						item.params.put(key, strings);
+					} else {
+						item.params.put(key, new String[] {String.valueOf(value)});
+					}
+				}
+			}
+			item.headers = new HashMap<String, List<String>>(parentHeaders);
+			JSONObject headers = object.optJSONObject("headers");
+			if(null != headers) {
+				for (Iterator<?> iterator = headers.keys(); iterator.hasNext();) {
+					String key = iterator.next().toString();
+					List<String> values = new ArrayList<String>(1);
+					values.add(headers.getString(key));
+					item.headers.put(key.toLowerCase(Locale.ENGLISH), values);
+				}
+			}
+			JSONArray depends = object.optJSONArray("depends");
+			if(null != depends) {
+				for (int j = 0; j < depends.size(); j++) item.depends.add(depends.getString(j));
+			}
+			items.add(item);
+		}
+		return items;
+	}
+
+	/**
+	 * 在线程池中执行的子请求
+	 * 超时时尚未开始执行的子请求不再执行，已开始执行的子请求被中断，父请求等待其结束后才返回
+	 */
+	class Task implements Callable<Map<String, Object>> {
+		final Item item;
+		final BatchRequestWrapper request;
+		final HttpServletResponse response;
+		final AtomicBoolean started = new AtomicBoolean(false);
+		final CountDownLatch finished = new CountDownLatch(1);
+		Future<Map<String, Object>> future;
+
+		Task(Item item, BatchRequestWrapper request, HttpServletResponse response) {
+			this.item = item;
+			this.request = request;
+			this.response = response;
+		}
+
+		@Override
+		public Map<String, Object> call() throws Exception {
+			if(!started.compareAndSet(false, true)) return null; // 已超时放弃
+			try {
+				return dispatch(request, response, item);
+			} finally {
+				finished.countDown();
+			}
+		}
+
+		/**
+		 * 放弃执行，已开始执行时中断执行线程
+		 */
+		void abandon() {
+			if(started.compareAndSet(false, true)) {
+				finished.countDown();
+				future.cancel(false);
+			} else {
+				future.cancel(true);
+			}
+		}
+
+		/**
+		 * 等待执行结束
+		 */
+		void await() {
+			boolean interrupted = false;
+			try {
+				while(true) {
+					try {
+						if(finished.await(timeout, TimeUnit.MILLISECONDS)) return;
+						log.warn("batch request is waiting for timed out sub request " + item.url);
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if(interrupted) Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 按依赖关系分批执行，同一批次内的子请求并行执行
+	 * 全部子请求结束后才返回，子请求不会在父请求结束后继续执行
+	 */
+	protected void execute(HttpServletRequest request, HttpServletResponse response, List<Item> items) {
+		Set<String> done = new HashSet<String>();
+		List<Item> pending = new ArrayList<Item>(items);
+		while(!pending.isEmpty()) {
+			List<Item> ready = new ArrayList<Item>();
+			for (Item item : pending) {
+				if(done.containsAll(item.depends)) ready.add(item);
+			}
+			if(ready.isEmpty()) { // 存在循环依赖或依赖不存在
+				for (Item item : pending) item.result = result(item, 424, null, "unresolved depends");
+				return;
+			}
+			pending.removeAll(ready);
+			long start = System.currentTimeMillis();
+			List<Task> tasks = new ArrayList<Task>(ready.size() - 1);
+			try {
+				for (int i = 1; i < ready.size(); i++) {
+					Item item = ready.get(i);
+					Task task = new Task(item, wrap(request, item), response); // 在父请求线程中复制请求信息
+					try {
+						task.future = taskExecutor.submit(task);
+					} catch (RejectedExecutionException e) { // 线程池已满，不在当前线程中执行以保证整体耗时可控
+						item.result = result(item, 503, null, "rejected");
+						continue;
+					}
+					tasks.add(task);
+				}
+				ready.get(0).result = dispatch(wrap(request, ready.get(0)), response, ready.get(0)); // 首个子请求由当前线程执行
+				for (Task task : tasks) {
+					Item item = task.item;
+					long wait = item.timeout - (System.currentTimeMillis() - start);
+					try {
+						item.result = task.future.get(Math.max(0, wait), TimeUnit.MILLISECONDS);
+					} catch (TimeoutException e) {
+						task.abandon();
+						item.result = result(item, 504, null, "timeout");
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						task.abandon();
+						item.result = result(item, 503, null, "interrupted");
+					} catch (ExecutionException e) {
+						item.result = result(item, 500, null, String.valueOf(e.getCause()));
+					}
+				}
+			} finally {
+				for (Task task : tasks) task.await();
+			}
+			for (Item item : ready) done.add(item.id);
+		}
+	}
+
+	private BatchRequestWrapper wrap(HttpServletRequest request, Item item) {
+		return new BatchRequestWrapper(request, item.headers, item.method, item.url, item.params);
+	}
+
+	/**
+	 * 在当前线程中执行子请求，流程与DispatcherServlet一致
+	 * 执行线程未绑定Hibernate会话时，与OpenSessionInViewFilter一致绑定只读会话，执行结束后关闭
+	 */
+	protected Map<String, Object> dispatch(BatchRequestWrapper request, HttpServletResponse parentResponse, Item item) {
+		BatchResponseWrapper response = new BatchResponseWrapper(parentResponse);
+		LocaleResolver localeResolver = RequestContextUtils.getLocaleResolver(request);
+		Locale locale = null == localeResolver ? request.getLocale() : localeResolver.resolveLocale(request);
+		LocaleContext previousLocale = LocaleContextHolder.getLocaleContext();
+		LocaleContextHolder.setLocaleContext(new SimpleLocaleContext(locale));
+		RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+		ServletRequestAttributes attributes = new ServletRequestAttributes(request);
+		RequestContextHolder.setRequestAttributes(attributes);
+		boolean sessionBound = bindSession();
+		HandlerExecutionChain chain = null;
+		HandlerInterceptor[] interceptors = null;
+		int interceptorIndex = -1;
+		try {
+			ModelAndView modelAndView = null;
+			Exception dispatchException = null;
+			Object handler = null;
+			try {
+				chain = handlerMapping.getHandler(request);
+				if(null == chain) return result(item, 404, null, "not found");
+				handler = chain.getHandler();
+				if(handler instanceof HandlerMethod
+						&& BatchController.class.isAssignableFrom(((HandlerMethod) handler).getBeanType())) {
+					return result(item, 400, null, "nested batch request is not allowed");
+				}
+				interceptors = chain.getInterceptors();
+				if(null != interceptors) {
+					for (int i = 0; i < interceptors.length; i++) {
+						if(!interceptors[i].preHandle(request, response, handler)) {
+							triggerAfterCompletion(request, response, handler, interceptors, interceptorIndex, null);
+							return result(item, response);
+						}
+						interceptorIndex = i;
+					}
+				}
+				modelAndView = handlerAdapter.handle(request, response, handler);
+				if(null != interceptors) {
+					for (int i = interceptors.length - 1; i >= 0; i--) {
+						interceptors[i].postHandle(request, response, handler, modelAndView);
+					}
+				}
+			} catch (Exception e) {
+				dispatchException = e;
+			}
+			if(null != dispatchException) {
+				modelAndView = processHandlerException(request, response, handler, dispatchException);
+			}
+			if(null != modelAndView && !modelAndView.wasCleared()) render(modelAndView, request, response, locale);
+			triggerAfterCompletion(request, response, handler, interceptors, interceptorIndex, null);
+			return result(item, response);
+		} catch (Exception e) {
+			log.warn("batch request " + item.url + " failed", e);
+			if(null != chain) triggerAfterCompletion(request, response, chain.getHandler(), interceptors, interceptorIndex, e);
+			return result(item, 500, null, String.valueOf(e));
+		} finally {
+			if(sessionBound) unbindSession();
+			attributes.requestCompleted();
+			RequestContextHolder.setRequestAttributes(previous);
+			LocaleContextHolder.setLocaleContext(previousLocale);
+		}
+	}
+
+	/**
+	 * 与DispatcherServlet一致，依次调用HandlerExceptionResolver处理异常
+	 * @return 需要渲染的视图，已由处理器直接输出时返回null
+	 * @throws Exception 未被处理的异常
+	 */
+	private ModelAndView processHandlerException(HttpServletRequest request, HttpServletResponse response,
+			Object handler, Exception ex) throws Exception {
+		if(null != exceptionResolvers) {
+			for (HandlerExceptionResolver resolver : exceptionResolvers) {
+				ModelAndView modelAndView = resolver.resolveException(request, response, handler, ex);
+				if(null == modelAndView) continue;
+				if(modelAndView.isEmpty()) return null;
+				WebUtils.exposeErrorRequestAttributes(request, ex, null);
+				return modelAndView;
+			}
+		}
+		throw ex;
+	}
+
+	/**
+	 * 当前线程未绑定Hibernate会话时绑定新会话
+	 * @return 是否由当前方法绑定
+	 */
+	private boolean bindSession() {
+		if(null == sessionFactory || TransactionSynchronizationManager.hasResource(sessionFactory)) return false;
+		Session session = sessionFactory.openSession();
+		session.setFlushMode(FlushMode.MANUAL);
+		TransactionSynchronizationManager.bindResource(sessionFactory, new SessionHolder(session));
+		return true;
+	}
+
+	private void unbindSession() {
+		SessionHolder holder = (SessionHolder) TransactionSynchronizationManager.unbindResource(sessionFactory);
+		SessionFactoryUtils.closeSession(holder.getSession());
+	}
+
+	private void render(ModelAndView modelAndView, HttpServletRequest request,
+			HttpServletResponse response, Locale locale) throws Exception {
+		View view = modelAndView.getView();
+		if(modelAndView.isReference()) {
+			view = null;
+			for (ViewResolver viewResolver : viewResolvers) {
+				view = viewResolver.resolveViewName(modelAndView.getViewName(), locale);
+				if(null != view) break;
+			}
+			if(null == view) throw new IllegalStateException("could not resolve view " + modelAndView.getViewName());
+		}
+		if(null != view) view.render(modelAndView.getModel(), request, response);
+	}
+
+	private void triggerAfterCompletion(HttpServletRequest request, HttpServletResponse response,
+			Object handler, HandlerInterceptor[] interceptors, int interceptorIndex, Exception ex) {
+		for (int i = interceptorIndex; i >= 0; i--) {
+			try {
+				interceptors[i].afterCompletion(request, response, handler, ex);
+			} catch (Exception e) {
+				log.error("HandlerInterceptor.afterCompletion threw exception", e);
+			}
+		}
+	}
+
+	private Map<String, Object> result(Item item, BatchResponseWrapper response) throws IOException {
+		Map<String, Object> result = result(item, response.getStatus(), response.getContentType(), null);
+		Map<String, Object> headers = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, List<String>> entry : response.getHeaderMap().entrySet()) {
+			List<String> values = entry.getValue();
+			headers.put(entry.getKey(), 1 == values.size() ? values.get(0) : values);
+		}
+		result.put("headers", headers);
+		if(response.isText()) {
+			result.put("body", response.getText());
+		} else {
+			result.put("encoding", "base64");
+			result.put("body", Base64.getEncoder().encodeToString(response.getContent()));
+		}
+		return result;
+	}
+
+	private Map<String, Object> result(Item item, int status, String contentType, String body) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("id", item.id);
+		result.put("status", status);
+		result.put("contentType", contentType);
+		result.put("body", body);
+		return result;
+	}
+
+	/**
+	 * 按displayMessage的格式输出，支持与displayJSON相同的格式协商
+	 */
+	private void output(HttpServletRequest request, HttpServletResponse response,
+			int status, Object message) throws IOException {
+		Map<String, Object> map = new LinkedHashMap<String, Object>(2);
+		map.put("status", status);
+		map.put("message", message);
+		response.addHeader("Vary", "Accept");
+		MessageEncoder encoder = MessageEncoder.negotiate(request.getHeader("Accept"));
+		if(null != encoder) {
+			response.setContentType(encoder.getContentType());
+			encoder.encode(map, response.getOutputStream());
+			return;
+		}
+		response.setContentType(CONTENT_TYPE);
+		PrintWriter out = response.getWriter();
+		out.print(JSONObject.fromObject(map).toString());
+		out.flush();
+	}
+}
@@ -0,0 +1,468 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.web.servlet.DispatcherServlet;
+
+import com.iisquare.smh.frame.session.FrameSession;
+
+/**
+ * 批量请求中的子请求，拥有独立的路径、参数、属性及请求头
+ * 请求头取自父请求的快照，条件请求头及Accept等仅使用子请求自身的设置
+ * 子请求在线程池中执行，不支持异步Action
+ * 需在父请求线程中创建，创建时复制父请求的地址、区域、Cookie等信息，执行时不再访问父请求
+ * 会话由多个子请求共享，访问容器会话时对父请求加锁，启用本地会话存储时共享父请求的FrameSession
+ */
+public class BatchRequestWrapper extends HttpServletRequestWrapper {
+
+	private static final ThreadLocal<SimpleDateFormat> dateHeaderFormat = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format;
+		}
+	};
+	private final String method;
+	private final String requestURI;
+	private final String servletPath;
+	private final String queryString;
+	private final Map<String, String[]> parameters;
+	private final Map<String, List<String>> headers;
+	private final Map<String, Object> attributes = new HashMap<String, Object>();
+	private final HttpServletRequest parent;
+	private final ServletContext servletContext;
+	private final String contextPath, scheme, serverName, protocol, remoteAddr, remoteHost, localName, localAddr;
+	private final int serverPort, remotePort, localPort;
+	private final boolean secure;
+	private final String authType, remoteUser, requestedSessionId, characterEncoding;
+	private final Principal userPrincipal;
+	private final Cookie[] cookies;
+	private final Locale locale;
+	private final List<Locale> locales;
+
+	/**
+	 * @param request 父请求
+	 * @param headers 请求头快照，键为小写名称
+	 * @param method 请求方式
+	 * @param url 相对于上下文路径的地址，可附带查询字符串
+	 * @param params 附加参数
+	 */
+	public BatchRequestWrapper(HttpServletRequest request, Map<String, List<String>> headers,
+			String method, String url, Map<String, String[]> params) {
+		super(request);
+		this.method = method.toUpperCase(Locale.ENGLISH);
+		int index = url.indexOf('?');
+		this.servletPath = -1 == index ? url : url.substring(0, index);
+		this.queryString = -1 == index ? null : url.substring(index + 1);
+		this.requestURI = request.getContextPath() + servletPath;
+		this.headers = headers;
+		this.parent = request;
+		this.servletContext = request.getServletContext();
+		this.contextPath = request.getContextPath();
+		this.scheme = request.getScheme();
+		this.serverName = request.getServerName();
+		this.serverPort = request.getServerPort();
+		this.protocol = request.getProtocol();
+		this.secure = request.isSecure();
+		this.remoteAddr = request.getRemoteAddr();
+		this.remoteHost = request.getRemoteHost();
+		this.remotePort = request.getRemotePort();
+		this.localName = request.getLocalName();
+		this.localAddr = request.getLocalAddr();
+		this.localPort = request.getLocalPort();
+		this.authType = request.getAuthType();
+		this.remoteUser = request.getRemoteUser();
+		this.userPrincipal = request.getUserPrincipal();
+		this.requestedSessionId = request.getRequestedSessionId();
+		this.characterEncoding = request.getCharacterEncoding();
+		Cookie[] cookies = request.getCookies();
+		this.cookies = null == cookies ? null : cookies.clone();
+		this.locale = request.getLocale();
+		this.locales = Collections.list(request.getLocales());
+		for (Enumeration<String> names = request.getAttributeNames(); names.hasMoreElements();) {
+			String name = names.nextElement(); // 复制DispatcherServlet设置的上下文属性
+			if(name.startsWith(DispatcherServlet.class.getName())) attributes.put(name, request.getAttribute(name));
+		}
+		FrameSession session = FrameSession.get(request);
+		if(session.isStored()) { // 共享本地存储会话，会话Cookie写入父响应，父请求结束时写回
+			attributes.put(FrameSession.ATTRIBUTE_NAME, session.share());
+		}
+		Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+		if(null != queryString) parseQueryString(queryString, parameters);
+		if(null != params) {
+			for (Map.Entry<String, String[]> entry : params.entrySet()) {
+				parameters.put(entry.getKey(), merge(parameters.get(entry.getKey()), entry.getValue()));
+			}
+		}
+		this.parameters = Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * 复制父请求的全部请求头，键为小写名称
+	 */
+	public static Map<String, List<String>> snapshotHeaders(HttpServletRequest request) {
+		Map<String, List<String>> headers = new HashMap<String, List<String>>();
+		Enumeration<String> names = request.getHeaderNames();
+		while(null != names && names.hasMoreElements()) {
+			String name = names.nextElement();
+			headers.put(name.toLowerCase(Locale.ENGLISH), Collections.list(request.getHeaders(name)));
+		}
+		return headers;
+	}
+
+	private static void parseQueryString(String queryString, Map<String, String[]> parameters) {
+		for (String pair : queryString.split("&")) {
+			if(pair.length() < 1) continue;
+			int index = pair.indexOf('=');
+			String key = decode(-1 == index ? pair : pair.substring(0, index));
+			String value = -1 == index ? "" : decode(pair.substring(index + 1));
+			parameters.put(key, merge(parameters.get(key), new String[] {value}));
+		}
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			return value;
+		}
+	}
+
+	private static String[] merge(String[] values, String[] append) {
+		if(null == values) return append;
+		String[] result = new String[values.length + append.length];
+		System.arraycopy(values, 0, result, 0, values.length);
+		System.arraycopy(append, 0, result, values.length, append.length);
+		return result;
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return servletContext;
+	}
+
+	@Override
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	@Override
+	public String getScheme() {
+		return scheme;
+	}
+
+	@Override
+	public String getServerName() {
+		return serverName;
+	}
+
+	@Override
+	public int getServerPort() {
+		return serverPort;
+	}
+
+	@Override
+	public String getProtocol() {
+		return protocol;
+	}
+
+	@Override
+	public boolean isSecure() {
+		return secure;
+	}
+
+	@Override
+	public String getRemoteAddr() {
+		return remoteAddr;
+	}
+
+	@Override
+	public String getRemoteHost() {
+		return remoteHost;
+	}
+
+	@Override
+	public int getRemotePort() {
+		return remotePort;
+	}
+
+	@Override
+	public String getLocalName() {
+		return localName;
+	}
+
+	@Override
+	public String getLocalAddr() {
+		return localAddr;
+	}
+
+	@Override
+	public int getLocalPort() {
+		return localPort;
+	}
+
+	@Override
+	public String getAuthType() {
+		return authType;
+	}
+
+	@Override
+	public String getRemoteUser() {
+		return remoteUser;
+	}
+
+	@Override
+	public Principal getUserPrincipal() {
+		return userPrincipal;
+	}
+
+	@Override
+	public boolean isUserInRole(String role) {
+		synchronized (parent) {
+			return parent.isUserInRole(role);
+		}
+	}
+
+	@Override
+	public String getRequestedSessionId() {
+		return requestedSessionId;
+	}
+
+	@Override
+	public HttpSession getSession() {
+		return getSession(true);
+	}
+
+	@Override
+	public HttpSession getSession(boolean create) {
+		synchronized (parent) {
+			return parent.getSession(create);
+		}
+	}
+
+	@Override
+	public boolean isRequestedSessionIdValid() {
+		synchronized (parent) {
+			return parent.isRequestedSessionIdValid();
+		}
+	}
+
+	@Override
+	public Cookie[] getCookies() {
+		return null == cookies ? null : cookies.clone();
+	}
+
+	@Override
+	public Locale getLocale() {
+		return locale;
+	}
+
+	@Override
+	public Enumeration<Locale> getLocales() {
+		return Collections.enumeration(locales);
+	}
+
+	@Override
+	public String getCharacterEncoding() {
+		return characterEncoding;
+	}
+
+	@Override
+	public void setCharacterEncoding(String env) {}
+
+	@Override
+	public int getContentLength() {
+		return -1;
+	}
+
+	/**
+	 * 子请求不含请求体
+	 */
+	@Override
+	public ServletInputStream getInputStream() {
+		return new ServletInputStream() {
+			@Override
+			public int read() {
+				return -1;
+			}
+		};
+	}
+
+	@Override
+	public BufferedReader getReader() {
+		return new BufferedReader(new StringReader(""));
+	}
+
+	@Override
+	public String getMethod() {
+		return method;
+	}
+
+	@Override
+	public String getRequestURI() {
+		return requestURI;
+	}
+
+	@Override
+	public StringBuffer getRequestURL() {
+		StringBuffer url = new StringBuffer();
+		url.append(getScheme()).append("://").append(getServerName());
+		int port = getServerPort();
+		if(port > 0 && !(80 == port && "http".equals(getScheme())) && !(443 == port && "https".equals(getScheme()))) {
+			url.append(':').append(port);
+		}
+		return url.append(requestURI);
+	}
+
+	@Override
+	public String getServletPath() {
+		return servletPath;
+	}
+
+	@Override
+	public String getPathInfo() {
+		return null;
+	}
+
+	@Override
+	public String getQueryString() {
+		return queryString;
+	}
+
+	@Override
+	public String getParameter(String name) {
+		String[] values = parameters.get(name);
+		return null == values || values.length < 1 ? null : values[0];
+	}
+
+	@Override
+	public Map<String, String[]> getParameterMap() {
+		return parameters;
+	}
+
+	@Override
+	public Enumeration<String> getParameterNames() {
+		return Collections.enumeration(parameters.keySet());
+	}
+
+	@Override
+	public String[] getParameterValues(String name) {
+		return parameters.get(name);
+	}
+
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+		return null == values || values.isEmpty() ? null : values.get(0);
+	}
+
+	@Override
+	public Enumeration<String> getHeaders(String name) {
+		List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+		if(null == values) values = Collections.emptyList();
+		return Collections.enumeration(values);
+	}
+
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return Collections.enumeration(new ArrayList<String>(headers.keySet()));
+	}
+
+	@Override
+	public int getIntHeader(String name) {
+		String value = getHeader(name);
+		return null == value ? -1 : Integer.parseInt(value);
+	}
+
+	@Override
+	public long getDateHeader(String name) {
+		String value = getHeader(name);
+		if(null == value) return -1;
+		try {
+			return dateHeaderFormat.get().parse(value).getTime();
+		} catch (ParseException e) {
+			throw new IllegalArgumentException(value);
+		}
+	}
+
+	@Override
+	public String getContentType() {
+		return getHeader("Content-Type");
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		return Collections.enumeration(new ArrayList<String>(attributes.keySet()));
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if(null == value) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+
+	@Override
+	public DispatcherType getDispatcherType() {
+		return DispatcherType.REQUEST;
+	}
+
+	@Override
+	public boolean isAsyncSupported() {
+		return false;
+	}
+
+	@Override
+	public boolean isAsyncStarted() {
+		return false;
+	}
+
+	@Override
+	public AsyncContext startAsync() {
+		throw new IllegalStateException("async action is not supported in batch request");
+	}
+
+	@Override
+	public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+		throw new IllegalStateException("async action is not supported in batch request");
+	}
+}
@@ -0,0 +1,241 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * 批量请求中的子响应，将状态码、响应头及输出内容暂存在内存中
+ * 子响应不会写入父响应，Cookie仅记录为Set-Cookie响应头
+ */
+public class BatchResponseWrapper extends HttpServletResponseWrapper {
+
+	private int status = SC_OK;
+	private String contentType;
+	private String characterEncoding = "UTF-8";
+	private final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+	private ServletOutputStream outputStream;
+	private PrintWriter writer;
+
+	public BatchResponseWrapper(HttpServletResponse response) {
+		super(response);
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	@Override
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public void setStatus(int status, String message) {
+		this.status = status;
+	}
+
+	@Override
+	public void sendError(int status) {
+		this.status = status;
+	}
+
+	@Override
+	public void sendError(int status, String message) {
+		this.status = status;
+	}
+
+	@Override
+	public void sendRedirect(String location) {
+		this.status = SC_FOUND;
+		setHeader("Location", location);
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+		if(null == contentType) return;
+		int index = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+		if(-1 != index) characterEncoding = contentType.substring(index + 8).trim();
+	}
+
+	@Override
+	public String getCharacterEncoding() {
+		return characterEncoding;
+	}
+
+	@Override
+	public void setCharacterEncoding(String characterEncoding) {
+		this.characterEncoding = characterEncoding;
+	}
+
+	@Override
+	public void setLocale(Locale locale) {}
+
+	@Override
+	public void setContentLength(int length) {}
+
+	@Override
+	public void setBufferSize(int size) {}
+
+	@Override
+	public void addCookie(Cookie cookie) {
+		addHeader("Set-Cookie", cookie.getName() + "=" + cookie.getValue());
+	}
+
+	@Override
+	public boolean containsHeader(String name) {
+		return headers.containsKey(name);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		List<String> values = new ArrayList<String>(1);
+		values.add(value);
+		headers.put(name, values);
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		List<String> values = headers.get(name);
+		if(null == values) {
+			setHeader(name, value);
+		} else {
+			values.add(value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		setHeader(name, String.valueOf(value));
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		addHeader(name, String.valueOf(value));
+	}
+
+	@Override
+	public void setDateHeader(String name, long date) {
+		setHeader(name, String.valueOf(date));
+	}
+
+	@Override
+	public void addDateHeader(String name, long date) {
+		addHeader(name, String.valueOf(date));
+	}
+
+	@Override
+	public String getHeader(String name) {
+		List<String> values = headers.get(name);
+		return null == values || values.isEmpty() ? null : values.get(0);
+	}
+
+	@Override
+	public Collection<String> getHeaders(String name) {
+		List<String> values = headers.get(name);
+		return null == values ? new ArrayList<String>(0) : values;
+	}
+
+	@Override
+	public Collection<String> getHeaderNames() {
+		return headers.keySet();
+	}
+
+	public Map<String, List<String>> getHeaderMap() {
+		return headers;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() {
+		if(null == outputStream) {
+			outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					buffer.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					buffer.write(b, off, len);
+				}
+			};
+		}
+		return outputStream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws UnsupportedEncodingException {
+		if(null == writer) writer = new PrintWriter(new OutputStreamWriter(buffer, characterEncoding));
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() {
+		if(null != writer) writer.flush();
+	}
+
+	@Override
+	public boolean isCommitted() {
+		return false;
+	}
+
+	@Override
+	public void reset() {
+		resetBuffer();
+		status = SC_OK;
+		contentType = null;
+		headers.clear();
+	}
+
+	@Override
+	public void resetBuffer() {
+		if(null != writer) writer.flush();
+		buffer.reset();
+	}
+
+	/**
+	 * 获取输出内容
+	 */
+	public byte[] getContent() {
+		if(null != writer) writer.flush();
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * 输出内容是否为文本
+	 */
+	public boolean isText() {
+		if(null == contentType) return true;
+		String type = contentType.toLowerCase(Locale.ENGLISH);
+		return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+				|| type.contains("javascript") || type.contains("charset=");
+	}
+
+	/**
+	 * 以文本形式获取输出内容
+	 */
+	public String getText() throws IOException {
+		return new String(getContent(), characterEncoding);
+	}
+}
@@ -0,0 +1,47 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * 支持Action方法返回CompletableFuture(CompletionStage)
+ * 转换为DeferredResult后交由springMVC异步处理
+ */
+public class CompletableFutureReturnValueHandler implements
+		HandlerMethodReturnValueHandler {
+
+	@Override
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return CompletionStage.class.isAssignableFrom(returnType.getParameterType());
+	}
+
+	@Override
+	public void handleReturnValue(Object returnValue,
+			MethodParameter returnType, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest) throws Exception {
+		if(null == returnValue) {
+			mavContainer.setRequestHandled(true);
+			return;
+		}
+		final DeferredResult<Object> deferredResult = new DeferredResult<Object>();
+		((CompletionStage<?>) returnValue).whenComplete(new BiConsumer<Object, Throwable>() {
+			@Override
+			public void accept(Object result, Throwable throwable) {
+				if(null == throwable) {
+					deferredResult.setResult(result);
+				} else {
+					deferredResult.setErrorResult(throwable);
+				}
+			}
+		});
+		WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(deferredResult, mavContainer);
+	}
+
+}
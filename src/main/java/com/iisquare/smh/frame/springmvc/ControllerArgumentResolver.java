@@ -0,0 +1,386 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Conventions;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.Errors;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.iisquare.smh.frame.util.DPUtil;
+
+/**
+ * 约定Action方法参数绑定
+ * 无注解的基础类型参数按参数名称读取请求参数，简单Bean按属性名称（支持parent.id形式）绑定
+ * Bean属性访问器在启动时生成并缓存，包含无法转换的属性时交由springMVC默认方式处理
+ * Bean参数与springMVC一致放入模型中，方法声明Errors参数时交由springMVC处理以获取绑定结果
+ */
+public class ControllerArgumentResolver implements HandlerMethodArgumentResolver,
+		ApplicationListener<ContextRefreshedEvent> {
+
+	/**
+	 * 请求参数值转换器
+	 */
+	public interface Converter {
+		Object convert(String[] values);
+	}
+
+	private static final Map<Class<?>, Converter> converters = new HashMap<Class<?>, Converter>();
+	private static final BeanBinder UNSUPPORTED = new BeanBinder(null, null);
+	private static final int MAX_DEPTH = 8; // Bean属性路径的最大层级，超出的请求参数被忽略
+	private final Map<Class<?>, BeanBinder> binders = new ConcurrentHashMap<Class<?>, BeanBinder>();
+	private final Map<Class<?>, Converter> enumConverters = new ConcurrentHashMap<Class<?>, Converter>();
+
+	static {
+		Converter intConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return DPUtil.parseInt(values[0]);
+			}
+		};
+		Converter longConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return DPUtil.parseLong(values[0]);
+			}
+		};
+		Converter shortConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return (short) DPUtil.parseInt(values[0]);
+			}
+		};
+		Converter byteConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return (byte) DPUtil.parseInt(values[0]);
+			}
+		};
+		Converter doubleConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return parseDouble(values[0]);
+			}
+		};
+		Converter floatConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return (float) parseDouble(values[0]);
+			}
+		};
+		Converter booleanConverter = new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				String value = values[0];
+				return "true".equalsIgnoreCase(value) || "1".equals(value)
+						|| "on".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value);
+			}
+		};
+		converters.put(int.class, intConverter);
+		converters.put(Integer.class, intConverter);
+		converters.put(long.class, longConverter);
+		converters.put(Long.class, longConverter);
+		converters.put(short.class, shortConverter);
+		converters.put(Short.class, shortConverter);
+		converters.put(byte.class, byteConverter);
+		converters.put(Byte.class, byteConverter);
+		converters.put(double.class, doubleConverter);
+		converters.put(Double.class, doubleConverter);
+		converters.put(float.class, floatConverter);
+		converters.put(Float.class, floatConverter);
+		converters.put(boolean.class, booleanConverter);
+		converters.put(Boolean.class, booleanConverter);
+		converters.put(String.class, new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return values[0];
+			}
+		});
+		converters.put(String[].class, new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				return values;
+			}
+		});
+		converters.put(BigDecimal.class, new Converter() {
+			@Override
+			public Object convert(String[] values) {
+				try {
+					return new BigDecimal(values[0].trim());
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		});
+	}
+
+	/**
+	 * 启动时为全部Action方法的参数生成访问器
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		for (RequestMappingHandlerMapping mapping : event.getApplicationContext()
+				.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+				for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+					supportsParameter(parameter);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		if(null == parameter.getMethod()) return false;
+		if(!ControllerBase.class.isAssignableFrom(parameter.getMethod().getDeclaringClass())) return false;
+		if(parameter.getParameterAnnotations().length > 0) return false;
+		Class<?> type = parameter.getParameterType();
+		if(null != getConverter(type)) return true;
+		for (Class<?> item : parameter.getMethod().getParameterTypes()) {
+			if(Errors.class.isAssignableFrom(item)) return false;
+		}
+		return UNSUPPORTED != getBinder(type);
+	}
+
+	@Override
+	public Object resolveArgument(MethodParameter parameter,
+			ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+			WebDataBinderFactory binderFactory) throws Exception {
+		HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+		Class<?> type = parameter.getParameterType();
+		Converter converter = getConverter(type);
+		if(null == converter) {
+			BeanBinder binder = getBinder(type);
+			Object target = binder.newInstance();
+			for (Map.Entry<String, String[]> item : request.getParameterMap().entrySet()) {
+				if(isTooDeep(item.getKey())) continue;
+				binder.bind(this, target, item.getKey(), 0, 1, item.getValue());
+			}
+			if(null != mavContainer) {
+				mavContainer.addAttribute(Conventions.getVariableNameForParameter(parameter), target);
+			}
+			return target;
+		}
+		String name = parameter.getParameterName();
+		if(null == name) {
+			throw new IllegalStateException("No parameter name specified for argument of type ["
+					+ type.getName() + "], and no parameter name information found in class file either.");
+		}
+		String[] values = request.getParameterValues(name);
+		if(null == values || 0 == values.length) return defaultValue(type);
+		Object value = converter.convert(values);
+		return null == value ? defaultValue(type) : value;
+	}
+
+	/**
+	 * 获取类型对应的转换器
+	 * @param type
+	 * @return 不支持时返回null
+	 */
+	public Converter getConverter(final Class<?> type) {
+		Converter converter = converters.get(type);
+		if(null != converter || !type.isEnum()) return converter;
+		converter = enumConverters.get(type);
+		if(null != converter) return converter;
+		converter = new Converter() {
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			@Override
+			public Object convert(String[] values) {
+				try {
+					return Enum.valueOf((Class<Enum>) type, values[0].trim());
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			}
+		};
+		enumConverters.put(type, converter);
+		return converter;
+	}
+
+	/**
+	 * 获取Bean绑定器
+	 * @param type
+	 * @return 无法绑定时返回UNSUPPORTED
+	 */
+	protected BeanBinder getBinder(Class<?> type) {
+		BeanBinder binder = binders.get(type);
+		if(null != binder) return binder;
+		binder = isBindable(type, new HashSet<Class<?>>()) ? createBinder(type) : UNSUPPORTED;
+		binders.put(type, binder);
+		return binder;
+	}
+
+	/**
+	 * 判断是否为可绑定的简单Bean，全部可写属性均可转换或为可绑定的Bean
+	 */
+	private boolean isBindable(Class<?> type, Set<Class<?>> visited) {
+		if(!visited.add(type)) return true; // 自关联类型，如Test.parent
+		if(type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum()) return false;
+		if(Modifier.isAbstract(type.getModifiers()) || !Modifier.isPublic(type.getModifiers())) return false;
+		String className = type.getName();
+		if(className.startsWith("java.") || className.startsWith("javax.")
+				|| className.startsWith("org.springframework.")) return false;
+		try {
+			if(!Modifier.isPublic(type.getConstructor().getModifiers())) return false;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+		for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+			if(null == descriptor.getWriteMethod()) continue;
+			Class<?> propertyType = descriptor.getPropertyType();
+			if(null != getConverter(propertyType)) continue;
+			if(null == descriptor.getReadMethod() || !isBindable(propertyType, visited)) return false;
+		}
+		return true;
+	}
+
+	private BeanBinder createBinder(Class<?> type) {
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		MethodType getterType = MethodType.methodType(Object.class, Object.class);
+		MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+		try {
+			MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+			Map<String, Property> properties = new HashMap<String, Property>();
+			for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+				if(null == descriptor.getWriteMethod()) continue;
+				Property property = new Property();
+				property.type = descriptor.getPropertyType();
+				property.converter = getConverter(property.type);
+				property.setter = lookup.unreflect(descriptor.getWriteMethod()).asType(setterType);
+				if(null != descriptor.getReadMethod()) {
+					property.getter = lookup.unreflect(descriptor.getReadMethod()).asType(getterType);
+				}
+				properties.put(descriptor.getName(), property);
+			}
+			return new BeanBinder(constructor, properties);
+		} catch (ReflectiveOperationException e) {
+			return UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * 判断属性路径是否超出MAX_DEPTH层
+	 */
+	private static boolean isTooDeep(String path) {
+		for (int i = 0, depth = 1; i < path.length(); i++) {
+			if('.' == path.charAt(i) && ++depth > MAX_DEPTH) return true;
+		}
+		return false;
+	}
+
+	private Object defaultValue(Class<?> type) {
+		if(!type.isPrimitive()) return null;
+		if(boolean.class == type) return false;
+		if(long.class == type) return 0L;
+		if(double.class == type) return 0.0;
+		if(float.class == type) return 0.0f;
+		if(short.class == type) return (short) 0;
+		if(byte.class == type) return (byte) 0;
+		return 0;
+	}
+
+	/**
+	 * Bean属性访问器
+	 */
+	static class Property {
+		Class<?> type;
+		Converter converter; // 为null时表示嵌套Bean
+		MethodHandle getter, setter;
+	}
+
+	/**
+	 * Bean绑定器
+	 */
+	static class BeanBinder {
+		private final MethodHandle constructor;
+		private final Map<String, Property> properties;
+
+		BeanBinder(MethodHandle constructor, Map<String, Property> properties) {
+			this.constructor = constructor;
+			this.properties = properties;
+		}
+
+		Object newInstance() throws Exception {
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (Exception e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * 按属性路径绑定请求参数
+		 * @param resolver 用于获取嵌套Bean的绑定器
+		 * @param target 目标对象
+		 * @param path 属性路径
+		 * @param offset 当前层级在路径中的起始位置
+		 * @param depth 当前层级，从1开始，路径超出MAX_DEPTH层时忽略
+		 * @param values 请求参数值
+		 */
+		void bind(ControllerArgumentResolver resolver, Object target, String path, int offset, int depth, String[] values) throws Exception {
+			int dot = path.indexOf('.', offset);
+			if(-1 != dot && depth >= MAX_DEPTH) return; // 不再创建更深层级的嵌套Bean
+			Property property = properties.get(-1 == dot ? path.substring(offset) : path.substring(offset, dot));
+			if(null == property) return;
+			try {
+				if(-1 == dot) {
+					if(null == property.converter || null == values || 0 == values.length) return;
+					Object value = property.converter.convert(values);
+					if(null == value && property.type.isPrimitive()) return;
+					property.setter.invokeExact(target, value);
+					return;
+				}
+				if(null != property.converter) return;
+				BeanBinder binder = resolver.getBinder(property.type);
+				if(UNSUPPORTED == binder) return;
+				Object child = (Object) property.getter.invokeExact(target);
+				if(null == child) {
+					child = binder.newInstance();
+					property.setter.invokeExact(target, child);
+				}
+				binder.bind(resolver, child, path, dot + 1, depth + 1, values);
+			} catch (Exception e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * 宽松解析浮点数，支持科学计数法，无法解析时返回0
+	 * @param str
+	 * @return
+	 */
+	public static double parseDouble(String str) {
+		if(null == str) return 0.0;
+		try {
+			return Double.parseDouble(str.trim());
+		} catch (NumberFormatException e) {
+			return DPUtil.parseDouble(str);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.PrintWriter;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -16,6 +17,10 @@ import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.ModelAndView;
 
 import com.iisquare.smh.frame.FrameConfiguration;
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+import com.iisquare.smh.frame.codec.MessageEncoder;
+import com.iisquare.smh.frame.session.FrameSession;
+import com.iisquare.smh.frame.freemarker.FrameTemplateHashModel;
 import com.iisquare.smh.frame.util.DPUtil;
 import com.iisquare.smh.frame.util.ServletUtil;
 
@@ -29,6 +34,9 @@ public abstract class ControllerBase {
 		public static final String _PLAIN_TEXT_ = "_PLAIN_TEXT_";
 	}
 	
+	/* 需要根据输出内容生成ETag的请求属性名称 */
+	public static final String STRONG_ETAG_ATTRIBUTE = ControllerBase.class.getName() + ".STRONG_ETAG";
+	
 	@Autowired
 	private FrameConfiguration frameConfiguration;
 	private static String CONTENT_TYPE = "text/html;charset=utf-8";
@@ -38,7 +46,11 @@ public abstract class ControllerBase {
 	public HttpServletResponse _RESPONSE_;
 	public String _, _MODULE_, _CONTROLLER_, _ACTION_;
 	public Map<String, Object> _ASSIGN_;
+	/* 首次调用getWebRoot()等方法时计算，模板中通过_FRAME_获取，请勿直接读取字段 */
 	public String _WEB_ROOT_, _WEB_URL_, _SKIN_URL_, _THEME_URL_, _DIRECTORY_SEPARATOR_;
+	/* 按协议、主机、端口及上下文路径缓存的URL，依次为WEB_URL、SKIN_URL、THEME_URL */
+	private static final ConcurrentHashMap<String, String[]> urlCache = new ConcurrentHashMap<String, String[]>();
+	private static final int URL_CACHE_SIZE = 64; // 限制缓存条数，避免伪造Host头导致缓存膨胀
 	
 	public FrameConfiguration getFrameConfiguration() {
 		return frameConfiguration;
@@ -52,6 +64,65 @@ public abstract class ControllerBase {
 		
     }
 	
+	public String getWebRoot() {
+		if(null == _WEB_ROOT_) _WEB_ROOT_ = ServletUtil.getWebRoot(_REQUEST_);
+		return _WEB_ROOT_;
+	}
+	
+	public String getDirectorySeparator() {
+		if(null == _DIRECTORY_SEPARATOR_) _DIRECTORY_SEPARATOR_ = ServletUtil.getDirectorySeparator(_REQUEST_);
+		return _DIRECTORY_SEPARATOR_;
+	}
+	
+	public String getWebUrl() {
+		if(null == _WEB_URL_) loadUrls();
+		return _WEB_URL_;
+	}
+	
+	public String getSkinUrl() {
+		if(null == _SKIN_URL_) loadUrls();
+		return _SKIN_URL_;
+	}
+	
+	public String getThemeUrl() {
+		if(null == _THEME_URL_) loadUrls();
+		return _THEME_URL_;
+	}
+	
+	/**
+	 * 计算并缓存WEB_URL、SKIN_URL及THEME_URL
+	 */
+	private void loadUrls() {
+		String key = new StringBuilder(_REQUEST_.getScheme()).append(' ')
+				.append(_REQUEST_.getServerName()).append(' ')
+				.append(_REQUEST_.getServerPort()).append(' ')
+				.append(_REQUEST_.getContextPath()).append(' ')
+				.append(frameConfiguration.getThemeName()).toString(); // 主题可热更新，需参与缓存键
+		String[] urls = urlCache.get(key);
+		if(null == urls) {
+			urls = new String[3];
+			urls[0] = ServletUtil.getWebUrl(_REQUEST_);
+			if(DPUtil.empty(frameConfiguration.getSkinFolder())) {
+				urls[1] = urls[0];
+			} else {
+				StringBuilder sb = new StringBuilder(urls[0]);
+				sb.append("/").append(frameConfiguration.getSkinFolder());
+				urls[1] = sb.toString();
+			}
+			if(DPUtil.empty(frameConfiguration.getThemeName())) {
+				urls[2] = urls[1];
+			} else {
+				StringBuilder sb = new StringBuilder(urls[1]);
+				sb.append("/").append(frameConfiguration.getThemeName());
+				urls[2] = sb.toString();
+			}
+			if(urlCache.size() < URL_CACHE_SIZE) urlCache.putIfAbsent(key, urls);
+		}
+		_WEB_URL_ = urls[0];
+		_SKIN_URL_ = urls[1];
+		_THEME_URL_ = urls[2];
+	}
+	
 	/**
 	 * 初始化函数，设置相关参数
 	 */
@@ -60,23 +131,9 @@ public abstract class ControllerBase {
 		_REQUEST_ = request;
 		_RESPONSE_ = response;
 		_ASSIGN_ = new HashMap<String, Object>(0);
-		_WEB_ROOT_ = ServletUtil.getWebRoot(request);
-		_WEB_URL_ = ServletUtil.getWebUrl(request);
-		if(DPUtil.empty(frameConfiguration.getSkinFolder())) {
-			_SKIN_URL_ = _WEB_URL_;
-		} else {
-			StringBuilder sb = new StringBuilder(_WEB_URL_);
-			sb.append("/").append(frameConfiguration.getSkinFolder());
-			_SKIN_URL_ = sb.toString();
-		}
-		if(DPUtil.empty(frameConfiguration.getThemeName())) {
-			_THEME_URL_ = _SKIN_URL_;
-		} else {
-			StringBuilder sb = new StringBuilder(_SKIN_URL_);
-			sb.append("/").append(frameConfiguration.getThemeName());
-			_THEME_URL_ = sb.toString();
+		if(frameConfiguration.isStrongETag()) {
+			request.setAttribute(STRONG_ETAG_ATTRIBUTE, Boolean.TRUE);
 		}
-		_DIRECTORY_SEPARATOR_ = ServletUtil.getDirectorySeparator(request);
 		Method method = ((HandlerMethod) handler).getMethod();
 		/* 提取相关URI路径参数 */
 		String classFullName = this.getClass().getName();
@@ -104,11 +161,16 @@ public abstract class ControllerBase {
 	public void destroy(HttpServletRequest request,
 			HttpServletResponse response, Object handler,
 			ModelAndView modelAndView) {
+		if(null == modelAndView) return; // 请求已被直接处理，如异步超时或@ResponseBody
 		String viewName = modelAndView.getViewName();
 		if(DPUtil.empty(viewName)) {
 			modelAndView.clear();
 		} else if(viewName.startsWith("redirect:")) {
 			modelAndView.addAllObjects(_ASSIGN_);
+		} else if(frameConfiguration.isLeanViewModel()) {
+			modelAndView.addObject(FrameTemplateHashModel.NAME,
+					new FrameTemplateHashModel(this, frameConfiguration.isExposeRequest()))
+			.addAllObjects(_ASSIGN_);
 		} else {
 			modelAndView.addObject("_BASE_", _BASE_)
 			.addObject("_REQUEST_", _REQUEST_)
@@ -116,12 +178,12 @@ public abstract class ControllerBase {
 			.addObject("_MODULE_", _MODULE_)
 			.addObject("_CONTROLLER_", _CONTROLLER_)
 			.addObject("_ACTION_", _ACTION_)
-			.addObject("_WEB_ROOT_", _WEB_ROOT_)
-			.addObject("_WEB_URL_", _WEB_URL_)
-			.addObject("_SKIN_URL_", _SKIN_URL_)
-			.addObject("_THEME_URL_", _THEME_URL_)
+			.addObject("_WEB_ROOT_", getWebRoot())
+			.addObject("_WEB_URL_", getWebUrl())
+			.addObject("_SKIN_URL_", getSkinUrl())
+			.addObject("_THEME_URL_", getThemeUrl())
 			.addObject("_CONFIG_", frameConfiguration)
-			.addObject("_DIRECTORY_SEPARATOR_", _DIRECTORY_SEPARATOR_)
+			.addObject("_DIRECTORY_SEPARATOR_", getDirectorySeparator())
 			.addAllObjects(_ASSIGN_);
 		}
 	}
@@ -226,6 +288,9 @@ public abstract class ControllerBase {
 	 * @throws Exception
 	 */
 	protected String displayJSON(Object object, String contentType) throws Exception {
+		_RESPONSE_.addHeader("Vary", "Accept");
+		MessageEncoder encoder = MessageEncoder.negotiate(_REQUEST_.getHeader("Accept"));
+		if(null != encoder) return displayEncoded(object, encoder);
 		String result;
 		if(object instanceof Map) {
 			result = JSONObject.fromObject(object).toString();
@@ -235,6 +300,19 @@ public abstract class ControllerBase {
 		return displayText(result, contentType);
 	}
 	
+	/**
+	 * 按指定编码直接输出至响应流，如MessagePack、CBOR等
+	 * @param object 待输出对象
+	 * @param encoder 编码器
+	 * @return
+	 * @throws Exception
+	 */
+	protected String displayEncoded(Object object, MessageEncoder encoder) throws Exception {
+		_RESPONSE_.setContentType(encoder.getContentType());
+		encoder.encode(object, _RESPONSE_.getOutputStream());
+		return "";
+	}
+	
 	protected String redirect() throws Exception {
 		return redirect(_ACTION_);
 	}
@@ -288,6 +366,12 @@ public abstract class ControllerBase {
 			}
 			return result;
 		} else if(ControllerResultType._TEXT_.equals(type)){
+			OutputCacheManager.Ticket ticket = (OutputCacheManager.Ticket) _REQUEST_.getAttribute(OutputCacheManager.Ticket.ATTRIBUTE_NAME);
+			if(null != ticket) ticket.store(result, _RESPONSE_);
+			if(null != _REQUEST_.getAttribute(STRONG_ETAG_ATTRIBUTE) && !_RESPONSE_.containsHeader("ETag")
+					&& ServletUtil.checkNotModified(_REQUEST_, _RESPONSE_, ServletUtil.strongETag(result), -1)) {
+				return "";
+			}
 			PrintWriter out = _RESPONSE_.getWriter();
 			out.print(result);
 			out.flush();
@@ -298,6 +382,43 @@ public abstract class ControllerBase {
 		return null;
 	}
 	
+	/**
+	 * 根据版本标识判断客户端缓存是否有效，应在执行耗时查询前调用
+	 * 如：if(checkNotModified(testDao.queryVersion())) return displayNotModified();
+	 * @param version 版本标识，如最大修改时间，为null时视为已修改
+	 * @return 返回true时已设置304状态
+	 */
+	protected boolean checkNotModified(String version) {
+		if(null == version) return false;
+		StringBuilder sb = new StringBuilder(url()).append("#").append(version);
+		return ServletUtil.checkNotModified(_REQUEST_, _RESPONSE_, ServletUtil.weakETag(sb.toString()), -1);
+	}
+	
+	/**
+	 * 根据最后修改时间判断客户端缓存是否有效
+	 * @param lastModified 最后修改时间毫秒数
+	 * @return 返回true时已设置304状态
+	 */
+	protected boolean checkNotModified(long lastModified) {
+		return ServletUtil.checkNotModified(_REQUEST_, _RESPONSE_, null, lastModified);
+	}
+	
+	/**
+	 * 客户端缓存有效时不输出任何内容
+	 * @return
+	 */
+	protected String displayNotModified() {
+		return "";
+	}
+	
+	/**
+	 * 获取当前请求的会话，读取时不会创建会话
+	 * @return
+	 */
+	protected FrameSession session() {
+		return FrameSession.get(_REQUEST_);
+	}
+	
 	/**
 	 * 设置视图中需要的参数
 	 * @param key
@@ -1,22 +1,103 @@
 package com.iisquare.smh.frame.springmvc;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.sf.json.JSONObject;
+
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import com.iisquare.smh.frame.cache.OutputCacheManager;
+import com.iisquare.smh.frame.codec.MessageEncoder;
+import com.iisquare.smh.frame.session.FrameSession;
+import com.iisquare.smh.frame.session.SessionStore;
+import com.iisquare.smh.frame.util.ServletUtil;
+import com.iisquare.smh.frame.metrics.RequestMetrics;
+
 public class ControllerHandlerInterceptor extends HandlerInterceptorAdapter {
 
+	/* 异步请求中保存原控制器实例的属性名称 */
+	public static final String ASYNC_CONTROLLER_ATTRIBUTE = ControllerHandlerInterceptor.class.getName() + ".ASYNC_CONTROLLER";
+	/* 已获取访问许可的限制器属性名称 */
+	public static final String LIMITER_ATTRIBUTE = ControllerHandlerInterceptor.class.getName() + ".LIMITER";
+	private static final RouteLimiter UNLIMITED = new RouteLimiter(0, 1, 0);
+	private final ConcurrentHashMap<Method, RouteLimiter> limiters = new ConcurrentHashMap<Method, RouteLimiter>();
+	/* 请求耗时统计的属性名称 */
+	public static final String TIMING_ATTRIBUTE = ControllerHandlerInterceptor.class.getName() + ".TIMING";
+	private OutputCacheManager outputCacheManager;
+	private RequestMetrics requestMetrics;
+
+	/**
+	 * 请求耗时记录
+	 */
+	static class Timing {
+		final String key;
+		final long start;
+		long handled = -1;
+		
+		Timing(String key, long start) {
+			this.key = key;
+			this.start = start;
+		}
+	}
+
+	public RequestMetrics getRequestMetrics() {
+		return requestMetrics;
+	}
+
+	public void setRequestMetrics(RequestMetrics requestMetrics) {
+		this.requestMetrics = requestMetrics;
+	}
+
+	public OutputCacheManager getOutputCacheManager() {
+		return outputCacheManager;
+	}
+
+	public void setOutputCacheManager(OutputCacheManager outputCacheManager) {
+		this.outputCacheManager = outputCacheManager;
+	}
+
 	@Override
 	public boolean preHandle(HttpServletRequest request,
 			HttpServletResponse response, Object handler) throws Exception {
-		if (handler instanceof HandlerMethod) {
-			Object object = ((HandlerMethod) handler).getBean();
-			if(object instanceof ControllerBase) {
-				((ControllerBase) object).init(request, response, handler);
+		if(null != request.getAttribute(ASYNC_CONTROLLER_ATTRIBUTE)) { // 异步结果再次分派，沿用原控制器实例
+			return super.preHandle(request, response, handler);
+		}
+		long start = System.nanoTime();
+		if(null != SessionStore.getInstance()) FrameSession.bind(request, response); // 本地会话存储需写入Cookie
+		ControllerBase controller = getController(handler);
+		if(null != controller) {
+			controller.init(request, response, handler); // 统计的路由名称依赖初始化结果
+			Timing timing = null;
+			if(null != requestMetrics && requestMetrics.isEnabled()) {
+				timing = new Timing(metricsKey((HandlerMethod) handler, controller), start);
+			}
+			if(!acquireLimiter(request, response, (HandlerMethod) handler)) {
+				if(null != timing) requestMetrics.reject(timing.key, System.nanoTime() - start);
+				return false;
 			}
+			boolean proceed = false, completed = false;
+			try {
+				proceed = processOutputCache(request, response, (HandlerMethod) handler, controller);
+				completed = true;
+			} finally {
+				if(!proceed) { // 返回false时afterCompletion不会被调用，需在此释放许可并记录耗时
+					releaseLimiter(request);
+					if(null != timing) requestMetrics.record(timing.key, -1, -1, System.nanoTime() - start, !completed);
+				}
+			}
+			if(!proceed) return false;
+			if(null != timing) request.setAttribute(TIMING_ATTRIBUTE, timing);
 		}
 		return super.preHandle(request, response, handler);
 	}
@@ -25,13 +106,197 @@ public class ControllerHandlerInterceptor extends HandlerInterceptorAdapter {
 	public void postHandle(HttpServletRequest request,
 			HttpServletResponse response, Object handler,
 			ModelAndView modelAndView) throws Exception {
+		Timing timing = (Timing) request.getAttribute(TIMING_ATTRIBUTE);
+		if(null != timing) timing.handled = System.nanoTime();
+		ControllerBase controller = (ControllerBase) request.getAttribute(ASYNC_CONTROLLER_ATTRIBUTE);
+		if(null == controller) controller = getController(handler);
+		if(null != controller) {
+			controller.destroy(request, response, handler, modelAndView);
+		}
+		super.postHandle(request, response, handler, modelAndView);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request,
+			HttpServletResponse response, Object handler, Exception ex)
+			throws Exception {
+		request.removeAttribute(ASYNC_CONTROLLER_ATTRIBUTE);
+		releaseLimiter(request);
+		FrameSession.commit(request);
+		Timing timing = (Timing) request.getAttribute(TIMING_ATTRIBUTE);
+		if(null != timing) {
+			request.removeAttribute(TIMING_ATTRIBUTE);
+			long now = System.nanoTime();
+			boolean error = null != ex || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+			if(timing.handled < 0) { // Action执行异常时postHandle不会被调用
+				requestMetrics.record(timing.key, now - timing.start, -1, now - timing.start, error);
+			} else {
+				requestMetrics.record(timing.key, timing.handled - timing.start, now - timing.handled, now - timing.start, error);
+			}
+		}
+		super.afterCompletion(request, response, handler, ex);
+	}
+
+	/**
+	 * Action返回Callable、DeferredResult或CompletableFuture时被调用
+	 * 此时容器线程被释放，postHandle和afterCompletion将在异步结果分派后执行
+	 */
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request,
+			HttpServletResponse response, Object handler) throws Exception {
+		ControllerBase controller = getController(handler);
+		if(null != controller) { // 原型模式下再次分派会创建新实例，需保留原实例
+			request.setAttribute(ASYNC_CONTROLLER_ATTRIBUTE, controller);
+		}
+		super.afterConcurrentHandlingStarted(request, response, handler);
+	}
+
+	/**
+	 * 根据@RateLimit获取访问许可，超出限制时输出JSON信息
+	 * 格式与CController.displayMessage保持一致
+	 * @return 被拒绝时返回false
+	 * @throws IOException
+	 */
+	protected boolean acquireLimiter(HttpServletRequest request,
+			HttpServletResponse response, HandlerMethod handler) throws IOException {
+		RouteLimiter limiter = getLimiter(handler);
+		if(UNLIMITED == limiter) return true;
+		int status = limiter.tryAcquire();
+		if(RouteLimiter.PERMITTED == status) {
+			request.setAttribute(LIMITER_ATTRIBUTE, limiter);
+			return true;
+		}
+		writeStatus(response, status, RouteLimiter.RATE_LIMITED == status ? "Too Many Requests" : "Service Unavailable");
+		return false;
+	}
+	
+	/**
+	 * 输出拒绝请求的状态信息，格式与CController.displayMessage保持一致，503时附带Retry-After
+	 * @throws IOException
+	 */
+	public static void writeStatus(HttpServletResponse response, int status, String message) throws IOException {
+		Map<String, Object> map = new HashMap<String, Object>(2);
+		map.put("status", status);
+		map.put("message", message);
+		response.setStatus(status);
+		response.setContentType("text/html;charset=utf-8");
+		if(HttpServletResponse.SC_SERVICE_UNAVAILABLE == status) response.setHeader("Retry-After", "1");
+		PrintWriter out = response.getWriter();
+		out.print(JSONObject.fromObject(map).toString());
+		out.flush();
+	}
+	
+	/**
+	 * 释放当前请求持有的并发许可
+	 */
+	protected void releaseLimiter(HttpServletRequest request) {
+		RouteLimiter limiter = (RouteLimiter) request.getAttribute(LIMITER_ATTRIBUTE);
+		if(null == limiter) return;
+		request.removeAttribute(LIMITER_ATTRIBUTE);
+		limiter.release();
+	}
+	
+	/**
+	 * 获取Action对应的限制器
+	 * @return 未设置@RateLimit时返回UNLIMITED
+	 */
+	protected RouteLimiter getLimiter(HandlerMethod handler) {
+		Method method = handler.getMethod();
+		RouteLimiter limiter = limiters.get(method);
+		if(null != limiter) return limiter;
+		RateLimit rateLimit = AnnotationUtils.findAnnotation(method, RateLimit.class);
+		if(null == rateLimit) rateLimit = AnnotationUtils.findAnnotation(handler.getBeanType(), RateLimit.class);
+		if(null == rateLimit) {
+			limiter = UNLIMITED;
+		} else {
+			limiter = new RouteLimiter(rateLimit.permitsPerSecond(), rateLimit.burst(), rateLimit.maxConcurrent());
+		}
+		RouteLimiter exists = limiters.putIfAbsent(method, limiter);
+		return null == exists ? limiter : exists;
+	}
+	
+	/**
+	 * 处理@OutputCache整页缓存，命中时直接输出缓存内容
+	 * @return 命中缓存时返回false，中断后续处理
+	 * @throws IOException
+	 */
+	protected boolean processOutputCache(HttpServletRequest request,
+			HttpServletResponse response, HandlerMethod handler, ControllerBase controller) throws IOException {
+		if(null == outputCacheManager || !outputCacheManager.isEnabled()) return true;
+		if(!"GET".equals(request.getMethod())) return true;
+		if(null != MessageEncoder.negotiate(request.getHeader("Accept"))) return true; // 仅缓存文本输出
+		OutputCache outputCache = handler.getMethodAnnotation(OutputCache.class);
+		if(null == outputCache) return true;
+		String key = outputCacheKey(request, controller, outputCache);
+		OutputCacheManager.Entry entry = outputCacheManager.get(key);
+		if(null == entry) {
+			request.setAttribute(OutputCacheManager.Ticket.ATTRIBUTE_NAME, new OutputCacheManager.Ticket(
+					outputCacheManager, key, outputCache.ttl(), outputCache.depends()));
+			return true;
+		}
+		if(null != entry.getContentType()) response.setContentType(entry.getContentType());
+		if(null != entry.getVary()) {
+			for (String vary : entry.getVary()) response.addHeader("Vary", vary);
+		}
+		if(null != request.getAttribute(ControllerBase.STRONG_ETAG_ATTRIBUTE)
+				&& ServletUtil.checkNotModified(request, response, ServletUtil.strongETag(entry.getContent()), -1)) {
+			return false; // 与未命中缓存时的渲染流程一致，内容未变化时返回304
+		}
+		PrintWriter out = response.getWriter();
+		out.write(entry.getContent());
+		out.flush();
+		return false;
+	}
+	
+	/**
+	 * 生成整页缓存键
+	 */
+	protected String outputCacheKey(HttpServletRequest request, ControllerBase controller, OutputCache outputCache) {
+		StringBuilder sb = new StringBuilder("page:");
+		if(null == controller._ACTION_) {
+			sb.append(request.getRequestURI());
+		} else {
+			sb.append("/").append(controller._MODULE_)
+				.append("/").append(controller._CONTROLLER_)
+				.append("/").append(controller._ACTION_);
+		}
+		char separator = '?';
+		for (String name : outputCache.params()) {
+			String[] values = request.getParameterValues(name);
+			if(null == values) continue;
+			for (String value : values) {
+				sb.append(separator).append(name).append("=").append(value);
+				separator = '&';
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 生成耗时统计的路由名称，约定路由采用/Module/Controller/Action形式
+	 */
+	protected String metricsKey(HandlerMethod handler, ControllerBase controller) {
+		if(null == controller._ACTION_) {
+			return handler.getBeanType().getName() + "#" + handler.getMethod().getName();
+		}
+		return new StringBuilder("/").append(controller._MODULE_)
+				.append("/").append(controller._CONTROLLER_)
+				.append("/").append(controller._ACTION_).toString();
+	}
+	
+	/**
+	 * 获取处理器对应的控制器实例
+	 * @param handler
+	 * @return 非ControllerBase时返回null
+	 */
+	protected ControllerBase getController(Object handler) {
 		if (handler instanceof HandlerMethod) {
 			Object object = ((HandlerMethod) handler).getBean();
 			if(object instanceof ControllerBase) {
-				((ControllerBase) object).destroy(request, response, handler, modelAndView);
+				return (ControllerBase) object;
 			}
 		}
-		super.postHandle(request, response, handler, modelAndView);
+		return null;
 	}
 
 }
@@ -2,10 +2,18 @@ package com.iisquare.smh.frame.springmvc;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.mvc.condition.ConsumesRequestCondition;
 import org.springframework.web.servlet.mvc.condition.HeadersRequestCondition;
 import org.springframework.web.servlet.mvc.condition.ParamsRequestCondition;
@@ -18,6 +26,7 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 
 import com.iisquare.smh.frame.FrameConfiguration;
 import com.iisquare.smh.frame.util.DPUtil;
+import com.iisquare.smh.frame.util.ServletUtil;
 
 public class ControllerRequestMappingHandlerMapping extends
 		RequestMappingHandlerMapping {
@@ -26,6 +35,22 @@ public class ControllerRequestMappingHandlerMapping extends
 	private boolean useSuffixPatternMatch = true;
 	private boolean useTrailingSlashMatch = true;
 	private final List<String> fileExtensions = new ArrayList<String>();
+	private final Set<RequestMappingInfo> conventionMappings = new HashSet<RequestMappingInfo>(); // 约定路由映射
+	private final Map<String, Route> conventionRoutes = new HashMap<String, Route>(); // 约定路由快速查找表
+	private final Set<String> excludedRoutes = new HashSet<String>(); // 存在其他映射的路径，交由springMVC处理
+	
+	/**
+	 * 约定路由查找项
+	 */
+	static class Route {
+		final RequestMappingInfo mapping;
+		final HandlerMethod handlerMethod;
+		
+		Route(RequestMappingInfo mapping, HandlerMethod handlerMethod) {
+			this.mapping = mapping;
+			this.handlerMethod = handlerMethod;
+		}
+	}
 	
 	public FrameConfiguration getFrameConfiguration() {
 		return frameConfiguration;
@@ -35,6 +60,12 @@ public class ControllerRequestMappingHandlerMapping extends
 		this.frameConfiguration = frameConfiguration;
 	}
 
+	@Override
+	protected void initServletContext(ServletContext servletContext) {
+		super.initServletContext(servletContext);
+		ServletUtil.getWebRoot(servletContext); // 启动时计算项目路径及目录分隔符
+	}
+
 	@Override
 	protected RequestMappingInfo getMappingForMethod(Method method,
 			Class<?> handlerType) {
@@ -81,8 +112,62 @@ public class ControllerRequestMappingHandlerMapping extends
 					new ConsumesRequestCondition(),
 					new ProducesRequestCondition(),
 					methodCondition);
+			if(null == methodCondition) conventionMappings.add(info);
 		}
 		return info;
 	}
 
+	/**
+	 * 注册处理方法，约定路由同时写入快速查找表
+	 */
+	@Override
+	protected void registerHandlerMethod(Object handler, Method method,
+			RequestMappingInfo mapping) {
+		super.registerHandlerMethod(handler, method, mapping);
+		boolean convention = conventionMappings.remove(mapping);
+		for (String pattern : mapping.getPatternsCondition().getPatterns()) {
+			if(excludedRoutes.contains(pattern)) continue;
+			if(convention && !conventionRoutes.containsKey(pattern)) {
+				conventionRoutes.put(pattern, new Route(mapping, getHandlerMethods().get(mapping)));
+			} else {
+				conventionRoutes.remove(pattern);
+				excludedRoutes.add(pattern);
+			}
+		}
+	}
+
+	/**
+	 * 优先通过快速查找表匹配约定路由，避免逐一匹配全部路由
+	 * 未命中时采用springMVC默认的匹配方式
+	 */
+	@Override
+	protected HandlerMethod lookupHandlerMethod(String lookupPath,
+			HttpServletRequest request) throws Exception {
+		Route route = conventionRoutes.get(conventionPath(lookupPath));
+		if(null != route) {
+			RequestMappingInfo match = route.mapping.getMatchingCondition(request);
+			if(null != match) {
+				handleMatch(match, lookupPath, request);
+				return route.handlerMethod;
+			}
+		}
+		return super.lookupHandlerMethod(lookupPath, request);
+	}
+
+	/**
+	 * 去除请求路径中的后缀及末尾斜线，转换为约定路由的形式
+	 * @param lookupPath 请求路径
+	 * @return
+	 */
+	protected String conventionPath(String lookupPath) {
+		int end = lookupPath.length();
+		if(useTrailingSlashMatch && end > 1 && '/' == lookupPath.charAt(end - 1)) {
+			end--;
+		} else if(useSuffixPatternMatch) {
+			int dot = lookupPath.lastIndexOf('.');
+			if(dot > lookupPath.lastIndexOf('/')) end = dot;
+		}
+		return end == lookupPath.length() ? lookupPath : lookupPath.substring(0, end);
+	}
+
 }
@@ -0,0 +1,33 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 整页输出缓存，仅对GET请求生效
+ * 缓存键由Module/Controller/Action及params指定的请求参数组成
+ * 命中缓存时不执行Action，因此不应与Action中的checkNotModified同时使用，可通过strongETag根据缓存内容返回304
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface OutputCache {
+
+	/**
+	 * 有效时间，单位秒
+	 */
+	int ttl() default 60;
+
+	/**
+	 * 参与缓存键计算的请求参数名称
+	 */
+	String[] params() default {};
+
+	/**
+	 * 依赖的实体名称，对应DaoBase写操作时的实体类名
+	 */
+	String[] depends() default {};
+}
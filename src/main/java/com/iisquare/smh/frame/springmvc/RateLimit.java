@@ -0,0 +1,32 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Action访问限制，作用于控制器时对其全部Action生效，方法上的设置优先
+ * 超出频率时返回429，超出并发数时返回503
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+
+	/**
+	 * 每秒允许的请求数，小于等于0时不限制
+	 */
+	double permitsPerSecond() default 0;
+
+	/**
+	 * 允许突发的请求数
+	 */
+	int burst() default 1;
+
+	/**
+	 * 最大并发请求数，小于等于0时不限制
+	 */
+	int maxConcurrent() default 0;
+}
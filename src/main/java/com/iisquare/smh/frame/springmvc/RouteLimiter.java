@@ -0,0 +1,92 @@
+package com.iisquare.smh.frame.springmvc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的访问限制器，无锁实现
+ * 频率限制采用GCRA算法（等价于令牌桶），仅需维护一个理论到达时间
+ * 并发限制采用CAS计数，拒绝次数采用分段计数器统计
+ */
+public class RouteLimiter {
+
+	public static final int PERMITTED = 0;
+	public static final int RATE_LIMITED = 429;
+	public static final int CONCURRENCY_LIMITED = 503;
+
+	private final long interval; // 每个令牌的生成间隔，单位纳秒，0为不限制
+	private final long tolerance; // 允许突发的时间窗口
+	private final int maxConcurrent;
+	private final AtomicLong arrivalTime = new AtomicLong(System.nanoTime());
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final LongAdder rateRejected = new LongAdder();
+	private final LongAdder concurrencyRejected = new LongAdder();
+
+	public RouteLimiter(double permitsPerSecond, int burst, int maxConcurrent) {
+		this.interval = permitsPerSecond > 0 ? Math.max(1L, (long) (1000000000L / permitsPerSecond)) : 0;
+		this.tolerance = interval * Math.max(1, burst);
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	/**
+	 * 尝试获取访问许可，获取成功后需调用release释放
+	 * 先占用并发许可再消耗令牌，因并发限制被拒绝的请求不消耗频率额度
+	 * @return PERMITTED或拒绝时对应的HTTP状态码
+	 */
+	public int tryAcquire() {
+		if(!tryAcquireConcurrent()) {
+			concurrencyRejected.increment();
+			return CONCURRENCY_LIMITED;
+		}
+		if(!tryAcquireRate()) {
+			release();
+			rateRejected.increment();
+			return RATE_LIMITED;
+		}
+		return PERMITTED;
+	}
+
+	/**
+	 * 释放并发许可
+	 */
+	public void release() {
+		if(maxConcurrent > 0) concurrent.decrementAndGet();
+	}
+
+	private boolean tryAcquireRate() {
+		if(0 == interval) return true;
+		for (;;) {
+			long now = System.nanoTime();
+			long current = arrivalTime.get();
+			long next = Math.max(current, now) + interval;
+			if(next - now > tolerance) return false;
+			if(arrivalTime.compareAndSet(current, next)) return true;
+		}
+	}
+
+	private boolean tryAcquireConcurrent() {
+		if(maxConcurrent <= 0) return true;
+		for (;;) {
+			int current = concurrent.get();
+			if(current >= maxConcurrent) return false;
+			if(concurrent.compareAndSet(current, current + 1)) return true;
+		}
+	}
+
+	public int getConcurrent() {
+		return concurrent.get();
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public long getRateRejected() {
+		return rateRejected.sum();
+	}
+
+	public long getConcurrencyRejected() {
+		return concurrencyRejected.sum();
+	}
+}
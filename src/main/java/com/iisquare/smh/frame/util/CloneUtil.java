@@ -0,0 +1,414 @@
+package com.iisquare.smh.frame.util;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+
+/**
+ * 对象复制处理类
+ * 按类型生成复制计划并缓存，Bean按字段复制，支持集合、数组及循环引用
+ * 深度复制时未初始化的Hibernate延迟代理及集合复制为null，已初始化的代理复制其实际对象
+ * 不可变类型及无法访问内部字段的JDK类型直接引用原对象
+ */
+public class CloneUtil {
+
+	private static final Set<Class<?>> IMMUTABLE = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+			Object.class, String.class, Boolean.class, Character.class, Byte.class, Short.class,
+			Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class,
+			Class.class, UUID.class, Locale.class, URI.class, URL.class, Pattern.class, File.class));
+	private static final ConcurrentHashMap<Class<?>, Plan> plans = new ConcurrentHashMap<Class<?>, Plan>();
+
+	enum Kind {
+		VALUE, // 直接引用
+		DATE, // Date及Calendar，调用自身的clone方法
+		ARRAY, COLLECTION, MAP, BEAN
+	}
+
+	/**
+	 * 字段访问器
+	 */
+	static class Accessor {
+		final String name;
+		final Class<?> type;
+		final MethodHandle getter, setter;
+
+		Accessor(Field field, MethodHandle getter, MethodHandle setter) {
+			this.name = field.getName();
+			this.type = field.getType();
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		Object get(Object target) {
+			try {
+				return (Object) getter.invokeExact(target);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void set(Object target, Object value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * 判断值能否写入字段，基础类型字段不接受null
+		 */
+		boolean accept(Object value) {
+			if(null == value) return !type.isPrimitive();
+			return wrap(type).isInstance(value);
+		}
+	}
+
+	/**
+	 * 类型对应的复制计划
+	 */
+	static class Plan {
+		final Kind kind;
+		final MethodHandle constructor; // 无参构造方法，为null时集合采用默认实现，Bean无法复制
+		final Accessor[] accessors;
+		final Map<String, Accessor> names;
+
+		Plan(Kind kind, MethodHandle constructor, Accessor[] accessors) {
+			this.kind = kind;
+			this.constructor = constructor;
+			this.accessors = accessors;
+			if(null == accessors) {
+				names = null;
+			} else {
+				names = new HashMap<String, Accessor>();
+				for (Accessor accessor : accessors) {
+					if(!names.containsKey(accessor.name)) names.put(accessor.name, accessor); // 子类字段优先
+				}
+			}
+		}
+
+		Object newInstance() {
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	static Class<?> wrap(Class<?> type) {
+		if(!type.isPrimitive()) return type;
+		if(int.class == type) return Integer.class;
+		if(long.class == type) return Long.class;
+		if(boolean.class == type) return Boolean.class;
+		if(double.class == type) return Double.class;
+		if(float.class == type) return Float.class;
+		if(short.class == type) return Short.class;
+		if(byte.class == type) return Byte.class;
+		if(char.class == type) return Character.class;
+		return Void.class;
+	}
+
+	private static boolean isSystem(Class<?> type) {
+		String name = type.getName();
+		return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+				|| name.startsWith("com.sun.") || name.startsWith("jdk.");
+	}
+
+	private static Plan plan(Class<?> type) {
+		Plan plan = plans.get(type);
+		if(null == plan) {
+			plan = createPlan(type);
+			Plan exists = plans.putIfAbsent(type, plan);
+			if(null != exists) plan = exists;
+		}
+		return plan;
+	}
+
+	private static Plan createPlan(Class<?> type) {
+		if(type.isArray()) return new Plan(Kind.ARRAY, null, null);
+		if(IMMUTABLE.contains(type) || Enum.class.isAssignableFrom(type)
+				|| type.getName().startsWith("java.time.")) return new Plan(Kind.VALUE, null, null);
+		if(Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)) return new Plan(Kind.DATE, null, null);
+		if(Collection.class.isAssignableFrom(type)) return new Plan(Kind.COLLECTION, containerConstructor(type), null);
+		if(Map.class.isAssignableFrom(type)) return new Plan(Kind.MAP, containerConstructor(type), null);
+		if(isSystem(type)) return new Plan(Kind.VALUE, null, null);
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodType getterType = MethodType.methodType(Object.class, Object.class);
+		MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+		try {
+			MethodHandle constructor = null;
+			if(!Modifier.isAbstract(type.getModifiers())) {
+				try {
+					Constructor<?> method = type.getDeclaredConstructor();
+					method.setAccessible(true);
+					constructor = lookup.unreflectConstructor(method).asType(MethodType.methodType(Object.class));
+				} catch (NoSuchMethodException e) {
+					constructor = null;
+				}
+			}
+			List<Accessor> accessors = new ArrayList<Accessor>();
+			for (Class<?> current = type; null != current && Object.class != current; current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					if(Modifier.isStatic(field.getModifiers())) continue;
+					field.setAccessible(true);
+					accessors.add(new Accessor(field, lookup.unreflectGetter(field).asType(getterType),
+							lookup.unreflectSetter(field).asType(setterType)));
+				}
+			}
+			return new Plan(Kind.BEAN, constructor, accessors.toArray(new Accessor[accessors.size()]));
+		} catch (ReflectiveOperationException e) {
+			return new Plan(Kind.VALUE, null, null);
+		} catch (RuntimeException e) { // 继承自JDK内部类型等无法访问字段的情况
+			return new Plan(Kind.VALUE, null, null);
+		}
+	}
+
+	/**
+	 * 集合类型的无参构造方法，非公开类型、有序集合及Hibernate集合采用默认实现
+	 */
+	private static MethodHandle containerConstructor(Class<?> type) {
+		if(!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) return null;
+		if(PersistentCollection.class.isAssignableFrom(type)
+				|| SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)) return null;
+		try {
+			return MethodHandles.publicLookup().findConstructor(type,
+					MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 获取实际对象，未初始化的Hibernate代理及集合返回null
+	 */
+	private static Object unproxy(Object object) {
+		if(object instanceof HibernateProxy) {
+			LazyInitializer initializer = ((HibernateProxy) object).getHibernateLazyInitializer();
+			if(initializer.isUninitialized()) return null;
+			return initializer.getImplementation();
+		}
+		if(object instanceof PersistentCollection && !((PersistentCollection) object).wasInitialized()) return null;
+		return object;
+	}
+
+	/**
+	 * 深度复制对象
+	 * @param object
+	 * @return
+	 */
+	public static <T> T deepClone(T object) {
+		return clone(object, true);
+	}
+
+	/**
+	 * 浅复制对象，仅复制对象本身，字段、集合元素及数组元素引用原对象
+	 * @param object
+	 * @return
+	 */
+	public static <T> T shallowClone(T object) {
+		return clone(object, false);
+	}
+
+	/**
+	 * 复制对象
+	 * @param object 要复制的对象
+	 * @param deep 是否深度复制
+	 * @return
+	 * @throws IllegalArgumentException Bean不存在无参构造方法时抛出
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T clone(T object, boolean deep) {
+		return (T) copy(object, deep, deep ? new IdentityHashMap<Object, Object>() : null);
+	}
+
+	private static Object copy(Object object, boolean deep, IdentityHashMap<Object, Object> copied) {
+		if(null == object) return null;
+		object = unproxy(object);
+		if(null == object) return null;
+		Plan plan = plan(object.getClass());
+		switch (plan.kind) {
+		case VALUE:
+			return object;
+		case DATE:
+			return object instanceof Date ? ((Date) object).clone() : ((Calendar) object).clone();
+		default:
+			break;
+		}
+		if(null != copied) {
+			Object exists = copied.get(object);
+			if(null != exists) return exists;
+		}
+		switch (plan.kind) {
+		case ARRAY:
+			return copyArray(object, deep, copied);
+		case COLLECTION:
+			return copyCollection(plan, object, deep, copied);
+		case MAP:
+			return copyMap(plan, object, deep, copied);
+		default:
+			return copyBean(plan, object, deep, copied);
+		}
+	}
+
+	private static Object copyArray(Object object, boolean deep, IdentityHashMap<Object, Object> copied) {
+		Class<?> componentType = object.getClass().getComponentType();
+		int length = Array.getLength(object);
+		Object target = Array.newInstance(componentType, length);
+		if(!deep || componentType.isPrimitive()) {
+			System.arraycopy(object, 0, target, 0, length);
+			return target;
+		}
+		copied.put(object, target);
+		Object[] source = (Object[]) object, array = (Object[]) target;
+		for (int i = 0; i < length; i++) {
+			array[i] = copy(source[i], true, copied);
+		}
+		return target;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object copyCollection(Plan plan, Object object, boolean deep, IdentityHashMap<Object, Object> copied) {
+		Collection<Object> source = (Collection<Object>) object;
+		Collection<Object> target;
+		if(null != plan.constructor) {
+			target = (Collection<Object>) plan.newInstance();
+		} else if(source instanceof SortedSet) {
+			target = new TreeSet<Object>(((SortedSet<Object>) source).comparator());
+		} else if(source instanceof Set) {
+			target = new LinkedHashSet<Object>(source.size());
+		} else if(source instanceof Queue) {
+			target = new LinkedList<Object>();
+		} else {
+			target = new ArrayList<Object>(source.size());
+		}
+		if(null != copied) copied.put(object, target);
+		for (Object item : source) {
+			target.add(deep ? copy(item, true, copied) : item);
+		}
+		return target;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object copyMap(Plan plan, Object object, boolean deep, IdentityHashMap<Object, Object> copied) {
+		Map<Object, Object> source = (Map<Object, Object>) object;
+		Map<Object, Object> target;
+		if(null != plan.constructor) {
+			target = (Map<Object, Object>) plan.newInstance();
+		} else if(source instanceof SortedMap) {
+			target = new TreeMap<Object, Object>(((SortedMap<Object, Object>) source).comparator());
+		} else {
+			target = new LinkedHashMap<Object, Object>();
+		}
+		if(null != copied) copied.put(object, target);
+		for (Map.Entry<Object, Object> item : source.entrySet()) {
+			if(deep) {
+				target.put(copy(item.getKey(), true, copied), copy(item.getValue(), true, copied));
+			} else {
+				target.put(item.getKey(), item.getValue());
+			}
+		}
+		return target;
+	}
+
+	private static Object copyBean(Plan plan, Object object, boolean deep, IdentityHashMap<Object, Object> copied) {
+		if(null == plan.constructor) {
+			throw new IllegalArgumentException("no default constructor for " + object.getClass().getName());
+		}
+		Object target = plan.newInstance();
+		if(null != copied) copied.put(object, target);
+		for (Accessor accessor : plan.accessors) {
+			Object value = accessor.get(object);
+			if(deep && !accessor.type.isPrimitive()) value = copy(value, true, copied);
+			accessor.set(target, value);
+		}
+		return target;
+	}
+
+	/**
+	 * 按字段名称深度复制为指定类型的Bean，源对象可为Map或其他Bean
+	 * 仅复制名称相同且类型兼容的字段，源对象为目标类型的实例时直接深度复制
+	 * @param source 源对象
+	 * @param type 目标类型
+	 * @return
+	 * @throws IllegalArgumentException 目标类型无法实例化时抛出
+	 */
+	public static <T> T copyProperties(Object source, Class<T> type) {
+		source = unproxy(source);
+		if(null == source) return null;
+		if(type.isInstance(source)) return type.cast(deepClone(source));
+		Plan plan = plan(type);
+		if(Kind.BEAN != plan.kind || null == plan.constructor) {
+			throw new IllegalArgumentException("can not copy properties to " + type.getName());
+		}
+		IdentityHashMap<Object, Object> copied = new IdentityHashMap<Object, Object>();
+		Object target = plan.newInstance();
+		copied.put(source, target);
+		if(source instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) source;
+			for (Accessor accessor : plan.accessors) {
+				if(!map.containsKey(accessor.name)) continue;
+				Object value = copy(map.get(accessor.name), true, copied);
+				if(accessor.accept(value)) accessor.set(target, value);
+			}
+		} else {
+			Plan sourcePlan = plan(source.getClass());
+			if(Kind.BEAN != sourcePlan.kind) return type.cast(target);
+			for (Accessor accessor : plan.accessors) {
+				Accessor from = sourcePlan.names.get(accessor.name);
+				if(null == from) continue;
+				Object value = copy(from.get(source), true, copied);
+				if(accessor.accept(value)) accessor.set(target, value);
+			}
+		}
+		return type.cast(target);
+	}
+}
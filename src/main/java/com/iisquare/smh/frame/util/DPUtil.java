@@ -1,12 +1,8 @@
 package com.iisquare.smh.frame.util;
 
 import java.lang.reflect.Array;
-import java.security.MessageDigest;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -15,7 +11,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import net.sf.json.JSONObject;
+import com.iisquare.smh.frame.cache.LocalCache;
 
 /**
  * 
@@ -25,6 +21,9 @@ import net.sf.json.JSONObject;
 public class DPUtil {
 	
 	public static final String regexDouble = "^-?\\d+(\\.\\d)*";
+	private static final String REGEX_META = ".$|()[]{}^?*+\\";
+	/* 已编译的正则表达式，按LRU淘汰，避免动态拼接的表达式导致缓存膨胀 */
+	private static final LocalCache<String, Pattern> patternCache = new LocalCache<String, Pattern>("pattern", 256, 0);
 	
 	/**
 	 * null false "" 0 "0" 返回true
@@ -52,34 +51,20 @@ public class DPUtil {
 	/**
 	 * MD5加密字符串
 	 * @param str
-	 * @return 大写32位字符串
+	 * @return 大写32位字符串，str为null时返回null
 	 */
 	public static String MD5(String str) {
-		try {
-			StringBuilder sb = new StringBuilder(32);
-			MessageDigest md = MessageDigest.getInstance("MD5");
-			byte[] array = md.digest(str.getBytes("UTF-8"));
-			for (int i = 0; i < array.length; i++) {
-				sb.append(Integer.toHexString((array[i] & 0xFF) | 0x100)
-						.toUpperCase().substring(1, 3));
-			}
-			return sb.toString();
-		} catch (RuntimeException e) {
-			return null;
-		} catch (Exception e) {
-			return null;
-		}
+		if(null == str) return null;
+		return HashUtil.hex(HashUtil.hash(HashUtil.MD5, str), true);
 	}
 	
 	/**
-	 * 获取随机整数字符串，最长为16位
+	 * 获取均匀分布的随机数字字符串，可包含前导零
 	 * @param length
 	 * @return
 	 */
 	public static String random(int length) {
-		if(length > 16) length = 16;
-		String str = Math.random() + "";
-		return str.substring(str.length() - length);
+		return HashUtil.randomDigits(length);
 	}
 	
 	/**
@@ -89,8 +74,7 @@ public class DPUtil {
 	 * @return
 	 */
 	public static String millisToDateTime(long millis, String format) {
-		SimpleDateFormat dateFormat = new SimpleDateFormat(format);
-		return dateFormat.format(new Date(millis));
+		return DateUtil.format(millis, format);
 	}
 	
 	/**
@@ -100,12 +84,7 @@ public class DPUtil {
 	 * @return
 	 */
 	public static long dateTimeToMillis(String dateTime, String format) {
-		SimpleDateFormat dateFormat = new SimpleDateFormat(format);
-		try {
-			return dateFormat.parse(dateTime).getTime();
-		} catch (ParseException e) {
-			return -1;
-		}
+		return DateUtil.parse(dateTime, format);
 	}
 	
 	/**
@@ -114,7 +93,7 @@ public class DPUtil {
 	 * @return
 	 */
 	public static String getCurrentDateTime(String format) {
-		return millisToDateTime(System.currentTimeMillis(), format);
+		return DateUtil.now(format);
 	}
 	
 	/**
@@ -122,40 +101,173 @@ public class DPUtil {
 	 * @return
 	 */
 	public static int getCurrentSeconds() {
-		String str = System.currentTimeMillis() + "";
-		str = str.substring(0, 10);
-		return parseInt(str);
+		return DateUtil.currentSeconds();
 	}
 	
 	/**
-	 * 转换为int类型
+	 * 转换为int类型，超出范围时取边界值
 	 * @param object
 	 * @return
 	 */
 	public static int parseInt(Object object) {
-		return (int) parseDouble(object);
+		if(object instanceof Integer) return (Integer) object;
+		long value = parseLong(object);
+		if(value > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+		if(value < Integer.MIN_VALUE) return Integer.MIN_VALUE;
+		return (int) value;
 	}
 	
 	/**
-	 * 转换为long类型
+	 * 转换为long类型，截取开头的整数部分，超出范围时取边界值
 	 * @param object
 	 * @return
 	 */
 	public static long parseLong(Object object) {
-		return (long) parseDouble(object);
+		if(null == object) return 0;
+		if(object instanceof Long || object instanceof Integer
+				|| object instanceof Short || object instanceof Byte) return ((Number) object).longValue();
+		if(object instanceof Number) return (long) ((Number) object).doubleValue();
+		CharSequence str = object instanceof CharSequence ? (CharSequence) object : object.toString();
+		int length = str.length(), i = skipBlank(str, 0, length);
+		boolean negative = i < length && '-' == str.charAt(i);
+		if(negative || (i < length && '+' == str.charAt(i))) i++;
+		if(i >= length || !isDigit(str.charAt(i))) return 0;
+		long value = 0;
+		for (; i < length; i++) {
+			int digit = str.charAt(i) - '0';
+			if(digit < 0 || digit > 9) break;
+			if(value < (Long.MIN_VALUE + digit) / 10) return negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+			value = value * 10 - digit; // 按负数累加，可精确表示Long.MIN_VALUE
+		}
+		if(negative) return value;
+		return Long.MIN_VALUE == value ? Long.MAX_VALUE : -value;
 	}
 	
 	/**
-	 * 转换为double类型
+	 * 转换为double类型，截取开头的数字部分，如“-12.5abc”返回-12.5
 	 * @param object
 	 * @return
 	 */
 	public static double parseDouble(Object object) {
 		if(null == object) return 0.0;
-		String str = object.toString();
-		if("".equals(str)) return 0.0;
-		str = getFirstMatcher(regexDouble, str);
-		return Double.parseDouble(str);
+		if(object instanceof Number) return ((Number) object).doubleValue();
+		CharSequence str = object instanceof CharSequence ? (CharSequence) object : object.toString();
+		int length = str.length(), start = skipBlank(str, 0, length);
+		boolean negative = start < length && '-' == str.charAt(start);
+		if(negative || (start < length && '+' == str.charAt(start))) start++;
+		if(start >= length || !isDigit(str.charAt(start))) return 0.0;
+		long mantissa = 0;
+		int digits = 0, scale = 0, i = start;
+		for (; i < length; i++) {
+			int digit = str.charAt(i) - '0';
+			if(digit < 0 || digit > 9) break;
+			if(mantissa > 0 || digit > 0) digits++;
+			if(digits <= 18) mantissa = mantissa * 10 + digit;
+		}
+		int end = i;
+		if(i + 1 < length && '.' == str.charAt(i) && isDigit(str.charAt(i + 1))) {
+			for (i++; i < length; i++) {
+				int digit = str.charAt(i) - '0';
+				if(digit < 0 || digit > 9) break;
+				if(mantissa > 0 || digit > 0) digits++;
+				if(digits <= 18) {
+					mantissa = mantissa * 10 + digit;
+					scale++;
+				}
+			}
+			end = i;
+		}
+		double value;
+		if(digits <= 15 && scale < POWERS_OF_TEN.length) { // 尾数及10的幂均可精确表示，相除结果即为正确舍入值
+			value = mantissa / POWERS_OF_TEN[scale];
+		} else {
+			value = Double.parseDouble(str.subSequence(start, end).toString());
+		}
+		return negative ? -value : value;
+	}
+	
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	private static int skipBlank(CharSequence str, int start, int length) {
+		while(start < length && str.charAt(start) <= ' ') start++;
+		return start;
+	}
+	
+	/**
+	 * 获取编译后的正则表达式，采用缓存
+	 * @param regex
+	 * @return
+	 */
+	public static Pattern getPattern(String regex) {
+		Pattern pattern = patternCache.get(regex);
+		if(null == pattern) {
+			pattern = Pattern.compile(regex);
+			patternCache.put(regex, pattern);
+		}
+		return pattern;
+	}
+	
+	/**
+	 * 判断表达式是否仅匹配单个字符，如“,”、“\\|”
+	 * @return 对应的字符，否则返回-1
+	 */
+	private static int literalChar(String regex) {
+		if(1 == regex.length()) {
+			char c = regex.charAt(0);
+			return REGEX_META.indexOf(c) < 0 ? c : -1;
+		}
+		if(2 == regex.length() && '\\' == regex.charAt(0)) {
+			char c = regex.charAt(1);
+			return REGEX_META.indexOf(c) < 0 ? -1 : c; // 字母及数字的转义具有特殊含义
+		}
+		return -1;
+	}
+	
+	/**
+	 * 是否为正则表达式中\\s匹配的空白字符
+	 */
+	private static boolean isWhitespace(char c) {
+		return ' ' == c || '\t' == c || '\n' == c || '\r' == c || '\f' == c || '\u000B' == c;
+	}
+	
+	/**
+	 * 按表达式分隔字符串，结果与String.split(regex)一致
+	 * 单个字符、\\s及\\s+直接遍历分隔，其余表达式采用缓存的Pattern
+	 * @param str
+	 * @param regex
+	 * @return
+	 */
+	public static String[] split(String str, String regex) {
+		int delimiter = literalChar(regex);
+		if(-1 == delimiter && !"\\s".equals(regex) && !"\\s+".equals(regex)) return getPattern(regex).split(str);
+		boolean run = "\\s+".equals(regex);
+		List<String> list = new ArrayList<String>();
+		int length = str.length(), start = 0, i = 0;
+		while(i < length) {
+			char c = str.charAt(i);
+			if(-1 == delimiter ? !isWhitespace(c) : delimiter != c) {
+				i++;
+				continue;
+			}
+			list.add(str.substring(start, i));
+			i++;
+			if(run) {
+				while(i < length && isWhitespace(str.charAt(i))) i++;
+			}
+			start = i;
+		}
+		if(list.isEmpty()) return new String[]{str};
+		list.add(str.substring(start));
+		int size = list.size();
+		while(size > 0 && 0 == list.get(size - 1).length()) size--; // 与String.split一致，去除末尾的空字符串
+		return list.subList(0, size).toArray(new String[size]);
 	}
 	
 	public static List<String> getMatcher(String regex, String str) {
@@ -171,8 +283,7 @@ public class DPUtil {
 	 */
 	public static List<String> getMatcher(String regex, String str, boolean bGroup) {
 		List<String> list = new ArrayList<String>();
-		Pattern pattern = Pattern.compile(regex);
-		Matcher matcher = pattern.matcher(str);
+		Matcher matcher = getPattern(regex).matcher(str);
 		while(matcher.find()) {
 			if(bGroup) {
 				for(int i = 0; i < matcher.groupCount(); i++) {
@@ -192,8 +303,7 @@ public class DPUtil {
 	 * @return
 	 */
 	public static String getFirstMatcher(String regex, String str) {
-		Pattern pattern = Pattern.compile(regex);
-		Matcher matcher = pattern.matcher(str);
+		Matcher matcher = getPattern(regex).matcher(str);
 		while(matcher.find()) {
 			return matcher.group();
 		}
@@ -212,11 +322,7 @@ public class DPUtil {
 	 */
 	public static String trim(String str, String trimStr) {
 		if(empty(str)) return "";
-		String regexLeft = "^(" + trimStr + ")*";
-		str = str.replaceFirst(regexLeft, "");
-		String regexRight = "(" + trimStr + ")*$";
-		str = str.replaceFirst(regexRight, "");
-		return str;
+		return removeRight(removeLeft(str, trimStr), trimStr);
 	}
 	
 	public static String trimLeft(String str) {
@@ -231,9 +337,7 @@ public class DPUtil {
 	 */
 	public static String trimLeft(String str, String trimStr) {
 		if(empty(str)) return "";
-		String regexLeft = "^(" + trimStr + ")*";
-		str = str.replaceFirst(regexLeft, "");
-		return str;
+		return removeLeft(str, trimStr);
 	}
 	
 	public static String trimRight(String str) {
@@ -248,9 +352,25 @@ public class DPUtil {
 	 */
 	public static String trimRight(String str, String trimStr) {
 		if(empty(str)) return "";
-		String regexRight = "(" + trimStr + ")*$";
-		str = str.replaceFirst(regexRight, "");
-		return str;
+		return removeRight(str, trimStr);
+	}
+	
+	private static String removeLeft(String str, String trimStr) {
+		if(0 == trimStr.length()) return str;
+		int c = literalChar(trimStr);
+		if(-1 == c) return getPattern("^(" + trimStr + ")*").matcher(str).replaceFirst("");
+		int start = 0, length = str.length();
+		while(start < length && c == str.charAt(start)) start++;
+		return str.substring(start);
+	}
+	
+	private static String removeRight(String str, String trimStr) {
+		if(0 == trimStr.length()) return str;
+		int c = literalChar(trimStr);
+		if(-1 == c) return getPattern("(" + trimStr + ")*$").matcher(str).replaceFirst("");
+		int end = str.length();
+		while(end > 0 && c == str.charAt(end - 1)) end--;
+		return str.substring(0, end);
 	}
 	
 	/**
@@ -265,10 +385,10 @@ public class DPUtil {
 		if(DPUtil.empty(string)) {
 			return new String[]{};
 		}
-		for (String str : string.split(splitRegex)) {
+		for (String str : split(string, splitRegex)) {
 			if(!DPUtil.empty(str)) {
 				if(null != trimStr) {
-					list.add(DPUtil.trim(str));
+					list.add(DPUtil.trim(str, trimStr));
 				} else {
 					list.add(str);
 				}
@@ -284,14 +404,10 @@ public class DPUtil {
 	 * @return 分隔后的字符串数组
 	 */
 	public static String[] explode(String string, String splitRegex) {
-		List<String> list = new ArrayList<String>(0);
 		if(DPUtil.empty(string)) {
 			return new String[]{};
 		}
-		for (String str : string.split(splitRegex)) {
-			list.add(str);
-		}
-		return DPUtil.listToStringArray(list);
+		return split(string, splitRegex);
 	}
 	
 	/**
@@ -478,7 +594,7 @@ public class DPUtil {
 	 */
 	public static String makeIds(Object ids, String divide) {
 		if(empty(ids)) return "";
-		String[] idArray = ids.toString().split(divide);
+		String[] idArray = split(ids.toString(), divide);
 		List<Integer> list = new ArrayList<Integer>(0);
 		for(String id : idArray) {
 			list.add(parseInt(id));
@@ -496,10 +612,10 @@ public class DPUtil {
 	 */
 	public static String makeIds(Object ids, String divide, String wrap) {
 		if(empty(ids)) return "";
-		String[] idArray = ids.toString().split(divide);
+		String[] idArray = split(ids.toString(), divide);
 		StringBuilder sb = new StringBuilder();
 		for(String id : idArray) {
-			sb.append(wrap + parseInt(id) +  wrap);
+			sb.append(wrap).append(parseInt(id)).append(wrap);
 		}
 		return sb.toString();
 	}
@@ -510,26 +626,39 @@ public class DPUtil {
 	 */
 	public static String unWrapIds(Object ids, String divide, String wrap) {
 		if(empty(ids)) return "";
-		return trim(ids.toString(), wrap).replaceAll(wrap + wrap, divide);
+		String str = trim(ids.toString(), wrap);
+		int c = literalChar(wrap);
+		if(-1 == c || divide.indexOf('$') >= 0 || divide.indexOf('\\') >= 0) {
+			return getPattern(wrap + wrap).matcher(str).replaceAll(divide);
+		}
+		StringBuilder sb = new StringBuilder(str.length());
+		int start = 0, length = str.length();
+		for (int i = 0; i < length; i++) {
+			if(i + 1 < length && c == str.charAt(i) && c == str.charAt(i + 1)) {
+				sb.append(str, start, i).append(divide);
+				start = ++i + 1;
+			}
+		}
+		return sb.append(str, start, length).toString();
 	}
 	
 	/**
-	 * 深度复制对象信息
+	 * 深度复制对象信息，保留原有类型
 	 * @param object 要复制的对象
 	 * @return
 	 */
 	public static Object clone(Object object) {
-		return JSONObject.fromObject(JSONObject.fromObject(object).toString());
+		return CloneUtil.deepClone(object);
 	}
 	
 	/**
-	 * 深度复制Bean信息
-	 * @param object 要复制的Bean对象
+	 * 深度复制Bean信息，按字段名称复制名称相同且类型兼容的字段
+	 * @param object 要复制的Bean对象或Map
 	 * @param beanClass 要转换成的Bean对象类名
 	 * @return
 	 */
 	public static Object clone(Object object, Class<?> beanClass) {
-		return JSONObject.toBean((JSONObject) clone(object), beanClass);
+		return CloneUtil.copyProperties(object, beanClass);
 	}
 	
 	/**
@@ -0,0 +1,165 @@
+package com.iisquare.smh.frame.util;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.iisquare.smh.frame.cache.LocalCache;
+
+/**
+ * 日期格式化处理类
+ * 格式化优先采用按格式缓存的DateTimeFormatter，含有两者语义不一致的字母时采用线程内缓存的SimpleDateFormat
+ * 不含毫秒的格式缓存最近一秒的结果，连续格式化同一秒内的时间时不再重复计算
+ * 解析仍采用SimpleDateFormat，保持宽松解析的行为
+ */
+public class DateUtil {
+
+	private static final String SAFE_LETTERS = "yMdHhmsaES"; // 与SimpleDateFormat语义一致的字母
+	private static final int[] MIN_COUNTS = {1, 1, 1, 1, 1, 1, 1, 1, 1, 3}; // 对应字母的最少连续个数
+	private static final int[] MAX_COUNTS = {4, 4, 2, 2, 2, 2, 2, 1, 4, 3}; // 对应字母的最多连续个数
+	private static final int THREAD_FORMAT_SIZE = 16; // 每个线程缓存的SimpleDateFormat数量
+	private static final LocalCache<String, Formatter> formatterCache = new LocalCache<String, Formatter>("dateFormat", 64, 0);
+	private static final ThreadLocal<Map<String, SimpleDateFormat>> simpleDateFormats = new ThreadLocal<Map<String, SimpleDateFormat>>() {
+		@Override
+		protected Map<String, SimpleDateFormat> initialValue() {
+			return new HashMap<String, SimpleDateFormat>();
+		}
+	};
+
+	/**
+	 * 最近一秒的格式化结果
+	 */
+	static class Last {
+		final long second;
+		final String text;
+
+		Last(long second, String text) {
+			this.second = second;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * 单个格式对应的格式化器
+	 */
+	static class Formatter {
+		final String pattern;
+		final DateTimeFormatter formatter; // 为null时采用SimpleDateFormat
+		final boolean subSecond; // 是否包含毫秒，包含时不缓存结果
+		volatile Last last;
+
+		Formatter(String pattern) {
+			this.pattern = pattern;
+			this.subSecond = pattern.indexOf('S') >= 0;
+			this.formatter = compatible(pattern) ? DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault()) : null;
+		}
+
+		String format(long millis) {
+			if(subSecond) return doFormat(millis);
+			long second = Math.floorDiv(millis, 1000);
+			Last last = this.last;
+			if(null != last && last.second == second) return last.text;
+			String text = doFormat(millis);
+			this.last = new Last(second, text);
+			return text;
+		}
+
+		private String doFormat(long millis) {
+			if(null != formatter) return formatter.format(Instant.ofEpochMilli(millis));
+			return simpleDateFormat(pattern).format(new Date(millis));
+		}
+	}
+
+	/**
+	 * 判断格式能否由DateTimeFormatter等价处理
+	 * 仅包含常用字母且连续个数在两者一致的范围内时采用，如a仅一个、H/h/m/s/d不超过两个、M/E不超过四个、毫秒为SSS
+	 * 其余如HHH、aa在DateTimeFormatter中报错，MMMMM、EEEEE为单字母缩写，Z、X、u等两者含义不同
+	 */
+	static boolean compatible(String pattern) {
+		boolean quoted = false;
+		for (int i = 0, length = pattern.length(); i < length; i++) {
+			char c = pattern.charAt(i);
+			if('\'' == c) {
+				quoted = !quoted;
+				continue;
+			}
+			if(quoted) continue;
+			if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int index = SAFE_LETTERS.indexOf(c);
+				if(index < 0) return false;
+				int end = i;
+				while(end < length && c == pattern.charAt(end)) end++;
+				int count = end - i;
+				if(count < MIN_COUNTS[index] || count > MAX_COUNTS[index]) return false;
+				i = end - 1;
+			} else if('[' == c || ']' == c || '{' == c || '}' == c || '#' == c) {
+				return false; // DateTimeFormatter的保留字符
+			}
+		}
+		return !quoted;
+	}
+
+	private static SimpleDateFormat simpleDateFormat(String pattern) {
+		Map<String, SimpleDateFormat> map = simpleDateFormats.get();
+		SimpleDateFormat format = map.get(pattern);
+		if(null == format) {
+			if(map.size() >= THREAD_FORMAT_SIZE) map.clear();
+			format = new SimpleDateFormat(pattern);
+			map.put(pattern, format);
+		}
+		return format;
+	}
+
+	private static Formatter formatter(String pattern) {
+		Formatter formatter = formatterCache.get(pattern);
+		if(null == formatter) {
+			formatter = new Formatter(pattern);
+			formatterCache.put(pattern, formatter);
+		}
+		return formatter;
+	}
+
+	/**
+	 * 毫秒转换为格式化日期
+	 * @param millis 毫秒
+	 * @param pattern 格式
+	 * @return
+	 */
+	public static String format(long millis, String pattern) {
+		return formatter(pattern).format(millis);
+	}
+
+	/**
+	 * 格式化日期转换为毫秒
+	 * @param dateTime 日期
+	 * @param pattern 格式
+	 * @return 解析失败时返回-1
+	 */
+	public static long parse(String dateTime, String pattern) {
+		if(null == dateTime) return -1;
+		Date date = simpleDateFormat(pattern).parse(dateTime, new ParsePosition(0));
+		return null == date ? -1 : date.getTime();
+	}
+
+	/**
+	 * 获取当前日期
+	 * @param pattern 日期格式
+	 * @return
+	 */
+	public static String now(String pattern) {
+		return format(System.currentTimeMillis(), pattern);
+	}
+
+	/**
+	 * 获取当前秒数
+	 * @return
+	 */
+	public static int currentSeconds() {
+		return (int) (System.currentTimeMillis() / 1000);
+	}
+}
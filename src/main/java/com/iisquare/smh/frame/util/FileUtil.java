@@ -1,12 +1,30 @@
 package com.iisquare.smh.frame.util;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 /**
  * 文件处理操作类
@@ -14,6 +32,14 @@ import java.io.InputStreamReader;
 public class FileUtil {
 	
 	public static final String encoding = "UTF-8";
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final ReentrantLock[] WRITE_LOCKS = new ReentrantLock[64]; // 按路径散列的写入锁
+	static Log log = LogFactory.getLog(FileUtil.class);
+	
+	static {
+		for (int i = 0; i < WRITE_LOCKS.length; i++) WRITE_LOCKS[i] = new ReentrantLock();
+	}
 	
 	public static boolean isExists(String filePath) {
 		File file = new File(filePath);
@@ -30,37 +56,337 @@ public class FileUtil {
 	}
 	
 	/**
-	 * 获取文件内容
+	 * 获取文件内容，换行统一为\n，去除末尾的一个换行
 	 * @param fileName 文件路径
 	 * @param bDislodgeLine 是否去除换行
 	 * @return 文件不存在或读取异常时返回null
 	 */
 	public static String getContent(String fileName, boolean bDislodgeLine) {
-		String output = "";
+		byte[] bytes = readAllBytes(fileName);
+		if(null == bytes) return null;
+		String content = new String(bytes, StandardCharsets.UTF_8);
+		if(content.indexOf('\r') >= 0) content = content.replace("\r\n", "\n").replace('\r', '\n');
+		if(bDislodgeLine) return content.replace("\n", "");
+		int length = content.length();
+		return length > 0 && '\n' == content.charAt(length - 1) ? content.substring(0, length - 1) : content;
+	}
+	
+	/**
+	 * 读取文件全部字节，按文件大小一次性分配缓冲区
+	 * @param fileName 文件路径
+	 * @return 文件不存在或读取异常时返回null
+	 */
+	public static byte[] readAllBytes(String fileName) {
 		File file = new File(fileName);
-		if (!file.exists()) return null;
 		if (!file.isFile()) return null;
-		InputStream inputStream = null;
-        InputStreamReader inputReader = null;
-        BufferedReader bufferReader = null;
+		FileChannel channel = null;
 		try {
-			inputStream = new FileInputStream(file);
-            inputReader = new InputStreamReader(inputStream, encoding);
-            bufferReader = new BufferedReader(inputReader);
-			StringBuilder sb = new StringBuilder();
-			String text;
-			while ((text = bufferReader.readLine()) != null) {
-				sb.append(text);
-				if(!bDislodgeLine) sb.append("\n");
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			long size = channel.size();
+			if(size > MAX_ARRAY_SIZE) return null;
+			ByteBuffer buffer = ByteBuffer.allocate(0 == size ? BUFFER_SIZE : (int) size);
+			ByteBuffer probe = ByteBuffer.allocate(1);
+			while(true) {
+				if(!buffer.hasRemaining()) { // 缓冲区已满时先探测是否到达末尾，避免按大小读完后仍扩容
+					probe.clear();
+					if(channel.read(probe) < 0) break;
+					if(0 == probe.position()) continue;
+					// 文件在读取过程中变大或大小未知，如/proc下的文件
+					if(buffer.capacity() >= MAX_ARRAY_SIZE) return null;
+					ByteBuffer larger = ByteBuffer.allocate((int) Math.min(MAX_ARRAY_SIZE, buffer.capacity() * 2L));
+					buffer.flip();
+					probe.flip();
+					buffer = larger.put(buffer).put(probe);
+				}
+				if(channel.read(buffer) < 0) break;
 			}
-			int length = sb.length();
-			output = length > 0 ? sb.substring(0, length - 1) : sb.toString();
-		} catch (IOException ioException) {
+			byte[] array = buffer.array();
+			return buffer.position() == array.length ? array : Arrays.copyOf(array, buffer.position());
+		} catch (IOException e) {
 			return null;
 		} finally {
-			close(bufferReader, inputReader, inputStream);
+			close(channel);
+		}
+	}
+	
+	/**
+	 * 以只读方式将文件映射到内存，适用于大文件的随机访问，内容不占用堆内存
+	 * @param fileName 文件路径
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer map(String fileName) throws IOException {
+		FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close(); // 映射在通道关闭后依然有效
+		}
+	}
+	
+	/**
+	 * 以只读方式映射文件的指定区域
+	 * @param fileName 文件路径
+	 * @param position 起始位置
+	 * @param size 映射长度，不能超过Integer.MAX_VALUE
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer map(String fileName, long position, long size) throws IOException {
+		FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size, Math.max(0, channel.size() - position)));
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * 按行读取文件，使用完毕后需关闭返回的Stream
+	 * @param fileName 文件路径
+	 * @return
+	 * @throws IOException
+	 */
+	public static Stream<String> lines(String fileName) throws IOException {
+		final BufferedReader reader = newReader(fileName);
+		return reader.lines().onClose(new Runnable() {
+			@Override
+			public void run() {
+				close(reader);
+			}
+		});
+	}
+	
+	/**
+	 * 非法字符按替换字符处理，与getContent一致
+	 */
+	private static BufferedReader newReader(String fileName) throws IOException {
+		return new BufferedReader(new InputStreamReader(
+				Files.newInputStream(new File(fileName).toPath()), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+	
+	/**
+	 * 逐行处理文件，内存占用与文件大小无关
+	 * @param fileName 文件路径
+	 * @param handler 行处理器，返回false时停止读取
+	 * @return 已处理的行数
+	 * @throws IOException
+	 */
+	public static long eachLine(String fileName, LineHandler handler) throws IOException {
+		BufferedReader reader = newReader(fileName);
+		try {
+			long number = 0;
+			String line;
+			while(null != (line = reader.readLine())) {
+				if(!handler.handle(line, ++number)) break;
+			}
+			return number;
+		} finally {
+			close(reader);
 		}
-		return output; 
+	}
+	
+	/**
+	 * 按块读取文件，各块复用同一个缓冲区
+	 * @param fileName 文件路径
+	 * @param chunkSize 块大小，单位字节
+	 * @param handler 块处理器，返回false时停止读取
+	 * @return 已读取的字节数
+	 * @throws IOException
+	 */
+	public static long eachChunk(String fileName, int chunkSize, ChunkHandler handler) throws IOException {
+		FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, chunkSize));
+			long position = 0;
+			while(true) {
+				buffer.clear();
+				int count;
+				while(buffer.hasRemaining() && (count = channel.read(buffer)) >= 0) {
+					if(0 == count) break;
+				}
+				if(0 == buffer.position()) break;
+				buffer.flip();
+				long start = position;
+				position += buffer.remaining();
+				if(!handler.handle(buffer, start)) break;
+			}
+			return position;
+		} finally {
+			close(channel);
+		}
+	}
+	
+	/**
+	 * 写入文件内容，先写入同目录下的临时文件再原子替换，不会出现写入一半的文件
+	 * @param fileName 文件路径
+	 * @param content 文件内容
+	 * @return 写入成功时返回true
+	 */
+	public static boolean putContent(String fileName, String content) {
+		return write(fileName, content.getBytes(StandardCharsets.UTF_8), false);
+	}
+	
+	/**
+	 * 原子写入文件
+	 * @param fileName 文件路径
+	 * @param data 文件内容
+	 * @param sync 是否在替换前将内容刷入磁盘
+	 * @return 写入成功时返回true
+	 */
+	public static boolean write(String fileName, final byte[] data, boolean sync) {
+		try {
+			write(new File(fileName), new OutputHandler() {
+				@Override
+				public void write(OutputStream out) throws IOException {
+					out.write(data);
+				}
+			}, sync);
+			return true;
+		} catch (IOException e) {
+			log.error("write " + fileName + " failed", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * 原子写入文件，同一文件的写入在进程内串行执行
+	 * 内容经缓冲写入同目录下的临时文件，可选刷盘后原子替换目标文件，失败时删除临时文件，目标文件保持原样
+	 * @param file 目标文件
+	 * @param handler 写入处理器，输出流由调用方负责写入，无需关闭
+	 * @param sync 是否刷盘，为true时同时刷新目录项
+	 * @throws IOException
+	 */
+	public static void write(File file, OutputHandler handler, boolean sync) throws IOException {
+		Path target = file.toPath().toAbsolutePath();
+		Path directory = target.getParent();
+		Files.createDirectories(directory);
+		ReentrantLock lock = writeLock(target);
+		lock.lock();
+		try {
+			Path temp = createTempFile(directory, target.getFileName().toString());
+			boolean moved = false;
+			try {
+				FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				try {
+					OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+					handler.write(out);
+					out.flush();
+					if(sync) channel.force(true);
+				} finally {
+					channel.close();
+				}
+				copyPermissions(target, temp);
+				try {
+					Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+				moved = true;
+			} finally {
+				if(!moved) Files.deleteIfExists(temp);
+			}
+			if(sync) syncDirectory(directory);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 获取文件的写入锁，按路径散列，可重入
+	 * @param target 绝对路径
+	 */
+	static ReentrantLock writeLock(Path target) {
+		return WRITE_LOCKS[(target.hashCode() & 0x7fffffff) % WRITE_LOCKS.length];
+	}
+	
+	/**
+	 * 延迟写入文件，同一文件在延迟时间内的多次写入合并为最后一次，适用于计数、快照等频繁的小文件写入
+	 * 由FileWriteBehind在后台线程中执行，未配置FileWriteBehind时直接写入
+	 * @param fileName 文件路径
+	 * @param data 文件内容，调用后不应再修改
+	 */
+	public static void writeBehind(String fileName, byte[] data) {
+		FileWriteBehind writer = FileWriteBehind.getInstance();
+		if(null == writer) {
+			write(fileName, data, false);
+		} else {
+			writer.write(fileName, data);
+		}
+	}
+	
+	/**
+	 * 立即写入全部延迟写入的内容
+	 */
+	public static void flush() {
+		FileWriteBehind writer = FileWriteBehind.getInstance();
+		if(null != writer) writer.flush();
+	}
+	
+	/**
+	 * 在目标目录中创建临时文件，采用默认权限，避免Files.createTempFile的600权限影响目标文件
+	 */
+	private static Path createTempFile(Path directory, String name) throws IOException {
+		while(true) {
+			Path temp = directory.resolve("." + name + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try {
+				return Files.createFile(temp);
+			} catch (FileAlreadyExistsException e) {
+				continue;
+			}
+		}
+	}
+	
+	private static void copyPermissions(Path source, Path target) {
+		try {
+			if(Files.exists(source)) Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+		} catch (UnsupportedOperationException e) {
+		} catch (IOException e) {}
+	}
+	
+	/**
+	 * 刷新目录项，保证替换操作落盘，不支持的系统忽略
+	 */
+	private static void syncDirectory(Path directory) {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+			channel.force(true);
+		} catch (IOException e) {
+		} finally {
+			close(channel);
+		}
+	}
+	
+	/**
+	 * 写入处理器
+	 */
+	public interface OutputHandler {
+		void write(OutputStream out) throws IOException;
+	}
+	
+	/**
+	 * 行处理器
+	 */
+	public interface LineHandler {
+		/**
+		 * @param line 行内容，不含换行
+		 * @param number 行号，从1开始
+		 * @return 是否继续读取
+		 */
+		boolean handle(String line, long number) throws IOException;
+	}
+	
+	/**
+	 * 块处理器
+	 */
+	public interface ChunkHandler {
+		/**
+		 * @param buffer 块内容，处理器返回后缓冲区将被复用
+		 * @param position 块在文件中的起始位置
+		 * @return 是否继续读取
+		 */
+		boolean handle(ByteBuffer buffer, long position) throws IOException;
 	}
 	
 	public static void close(Closeable...args) {
@@ -0,0 +1,110 @@
+package com.iisquare.smh.frame.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * 延迟写入文件，同一文件在延迟时间内的多次写入合并为最后一次，通过FileUtil.writeBehind调用
+ * 写入在后台线程中执行，失败时记录日志，容器关闭时停止后台线程并写入全部待写入的内容
+ */
+public class FileWriteBehind implements InitializingBean, DisposableBean {
+
+	private static volatile FileWriteBehind instance; // 当前启用的延迟写入器，未配置时为null
+	private final ConcurrentHashMap<Path, byte[]> pending = new ConcurrentHashMap<Path, byte[]>();
+	private long delay = 1000; // 延迟写入的等待时间，单位毫秒
+	private volatile boolean closed = false;
+	private ScheduledExecutorService scheduler;
+
+	public static FileWriteBehind getInstance() {
+		return instance;
+	}
+
+	public long getDelay() {
+		return delay;
+	}
+
+	public void setDelay(long delay) {
+		this.delay = delay;
+	}
+
+	public FileWriteBehind() {
+
+	}
+
+	/**
+	 * 延迟写入文件，已关闭时直接写入
+	 * @param fileName 文件路径
+	 * @param data 文件内容，调用后不应再修改
+	 */
+	public void write(String fileName, byte[] data) {
+		final Path target = new File(fileName).toPath().toAbsolutePath();
+		if(null != pending.put(target, data)) return; // 已有待执行的写入任务
+		if(!closed) {
+			try {
+				scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush(target);
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+				return;
+			} catch (RejectedExecutionException e) {} // 关闭过程中提交
+		}
+		flush(target);
+	}
+
+	/**
+	 * 立即写入全部待写入的内容
+	 */
+	public void flush() {
+		for (Path target : pending.keySet()) {
+			flush(target);
+		}
+	}
+
+	/**
+	 * 持有文件的写入锁取出并写入内容，避免并发的flush以旧内容覆盖新内容
+	 */
+	private void flush(Path target) {
+		ReentrantLock lock = FileUtil.writeLock(target);
+		lock.lock();
+		try {
+			byte[] data = pending.remove(target);
+			if(null == data) return;
+			FileUtil.write(target.toString(), data, false);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "frame-file-writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		instance = this;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		closed = true;
+		if(this == instance) instance = null;
+		if(null != scheduler) scheduler.shutdownNow();
+		flush();
+	}
+}
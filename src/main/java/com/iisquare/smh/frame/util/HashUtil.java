@@ -0,0 +1,174 @@
+package com.iisquare.smh.frame.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 摘要及随机标识处理类
+ * MessageDigest按线程缓存，十六进制编码采用查表方式直接写入字符数组
+ */
+public class HashUtil {
+
+	public static final String MD5 = "MD5";
+	public static final String SHA1 = "SHA-1";
+	public static final String SHA256 = "SHA-256";
+	private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+	private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+	private static final char[] DIGITS = "0123456789".toCharArray();
+	private static final int BUFFER_SIZE = 8192;
+	private static final SecureRandom secureRandom = new SecureRandom();
+	private static final ThreadLocal<Map<String, MessageDigest>> digests = new ThreadLocal<Map<String, MessageDigest>>() {
+		@Override
+		protected Map<String, MessageDigest> initialValue() {
+			return new HashMap<String, MessageDigest>();
+		}
+	};
+
+	/**
+	 * 获取当前线程缓存的摘要实例，返回前已重置
+	 * @param algorithm 摘要算法，如MD5、SHA-256
+	 * @throws IllegalArgumentException 不支持的算法
+	 */
+	public static MessageDigest digest(String algorithm) {
+		Map<String, MessageDigest> map = digests.get();
+		MessageDigest digest = map.get(algorithm);
+		if(null == digest) {
+			try {
+				digest = MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException(e);
+			}
+			map.put(algorithm, digest);
+		} else {
+			digest.reset();
+		}
+		return digest;
+	}
+
+	public static byte[] hash(String algorithm, byte[] bytes) {
+		return digest(algorithm).digest(bytes);
+	}
+
+	/**
+	 * 计算字符串的摘要，字符串采用UTF-8编码
+	 */
+	public static byte[] hash(String algorithm, String str) {
+		return hash(algorithm, str.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 流式计算输入流的摘要，不关闭输入流
+	 * @throws IOException
+	 */
+	public static byte[] hash(String algorithm, InputStream in) throws IOException {
+		MessageDigest digest = digest(algorithm);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+		while((count = in.read(buffer)) >= 0) {
+			digest.update(buffer, 0, count);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * 流式计算文件的摘要，文件内容不整体读入内存
+	 * @throws IOException
+	 */
+	public static byte[] hashFile(String algorithm, String fileName) throws IOException {
+		MessageDigest digest = digest(algorithm);
+		FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE * 8);
+			while(channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+		return digest.digest();
+	}
+
+	public static String md5(String str) {
+		return hex(hash(MD5, str), false);
+	}
+
+	public static String sha1(String str) {
+		return hex(hash(SHA1, str), false);
+	}
+
+	public static String sha256(String str) {
+		return hex(hash(SHA256, str), false);
+	}
+
+	/**
+	 * 十六进制编码
+	 * @param bytes
+	 * @param upperCase 是否采用大写字母
+	 * @return
+	 */
+	public static String hex(byte[] bytes, boolean upperCase) {
+		char[] table = upperCase ? HEX_UPPER : HEX_LOWER;
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0, j = 0; i < bytes.length; i++) {
+			chars[j++] = table[(bytes[i] >> 4) & 0xf];
+			chars[j++] = table[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 生成均匀分布的随机数字字符串，可包含前导零，适用于验证码等非安全场景
+	 * @param length 长度
+	 * @return
+	 */
+	public static String randomDigits(int length) {
+		if(length < 1) return "";
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		char[] chars = new char[length];
+		int i = 0;
+		while(i < length) {
+			int value = random.nextInt(1000000000); // 每次生成9位数字
+			for (int j = 0; j < 9 && i < length; j++) {
+				chars[i++] = DIGITS[value % 10];
+				value /= 10;
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 生成安全随机的十六进制标识，适用于会话标识等
+	 * @param bytes 随机字节数，结果长度为其两倍
+	 * @return 小写十六进制字符串
+	 */
+	public static String randomHex(int bytes) {
+		byte[] data = new byte[Math.max(0, bytes)];
+		secureRandom.nextBytes(data);
+		return hex(data, false);
+	}
+
+	/**
+	 * 生成安全随机的令牌，采用URL安全的Base64编码且不含填充，可直接用于URL及Cookie
+	 * @param bytes 随机字节数，16字节即128位
+	 * @return
+	 */
+	public static String token(int bytes) {
+		byte[] data = new byte[Math.max(0, bytes)];
+		secureRandom.nextBytes(data);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+	}
+}
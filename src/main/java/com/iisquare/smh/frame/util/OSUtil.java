@@ -1,10 +1,17 @@
 package com.iisquare.smh.frame.util;
 
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.iisquare.smh.frame.process.ProcessResult;
+import com.iisquare.smh.frame.process.ProcessRunner;
+
 /**
  * 操作系统工具类
  */
@@ -28,25 +35,63 @@ public class OSUtil {
 		return null;
 	}
 	
+	/**
+	 * 生成通过系统命令行执行的命令，Windows采用cmd /c，其余系统采用sh -c
+	 */
+	public static List<String> command(String command, OSType osType) {
+		if(OSType.Windows == osType) return Arrays.asList("cmd", "/c", command);
+		return Arrays.asList("sh", "-c", command);
+	}
+	
 	public static boolean exec(String command) {
 		return exec(command, getCurrentOS());
 	}
 	
+	/**
+	 * 异步执行命令，不等待执行结果，进程由ProcessRunner管理
+	 * 采用ProcessRunner的默认超时时间，避免长时间运行的命令持续占用有限的执行槽位
+	 * @return 等待队列已满时返回false
+	 */
 	public static boolean exec(String command, OSType osType) {
 		try {
-			Runtime rt = Runtime.getRuntime();
-			if(osType.equals(OSType.Windows)) {
-				command = "cmd /c " + command;
-				rt.exec(command);
-			} else if(osType.equals(OSType.Linux)){
-				rt.exec(new String[]{"sh", "-c", command});
-			} else {
-				return false;
-			}
+			ProcessRunner.getInstance().submit(command(command, osType));
 			return true;
-		} catch (IOException e) {
-			log.error(e.getMessage());
+		} catch (RejectedExecutionException e) {
+			log.error("exec " + command + " rejected");
 			return false;
 		}
 	}
+	
+	/**
+	 * 异步执行命令
+	 * @param command 命令
+	 * @param timeout 超时时间，单位毫秒，0为不限制
+	 * @param handler 逐行输出处理器，可为null
+	 * @return 执行结果
+	 * @throws RejectedExecutionException 等待队列已满时抛出
+	 */
+	public static Future<ProcessResult> submit(String command, long timeout, ProcessRunner.OutputHandler handler) {
+		return ProcessRunner.getInstance().submit(command(command, getCurrentOS()), timeout, handler);
+	}
+	
+	/**
+	 * 执行命令并等待结束
+	 * @param command 命令
+	 * @param timeout 超时时间，单位毫秒，0为不限制
+	 * @return 执行结果，被拒绝或无法启动时返回null
+	 */
+	public static ProcessResult execute(String command, long timeout) {
+		try {
+			return submit(command, timeout, null).get();
+		} catch (RejectedExecutionException e) {
+			log.error("exec " + command + " rejected");
+			return null;
+		} catch (ExecutionException e) {
+			log.error("exec " + command + " failed", e.getCause());
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
 }
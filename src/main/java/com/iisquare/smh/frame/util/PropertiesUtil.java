@@ -1,10 +1,11 @@
 package com.iisquare.smh.frame.util;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.net.URL;
 import java.util.Properties;
 
 import org.apache.commons.logging.Log;
@@ -33,33 +34,56 @@ public class PropertiesUtil {
        return store(prop, comments, new File(filePath));
 	}
 	
-	public static boolean store(Properties prop, String comments, File file) {
-		FileOutputStream fos = null;
+	/**
+	 * 保存属性文件，写入临时文件并刷盘后原子替换，写入失败时原文件保持不变
+	 */
+	public static boolean store(final Properties prop, final String comments, File file) {
 		try {
-        	fos = new FileOutputStream(file);
-            prop.store(fos, comments);
+			FileUtil.write(file, new FileUtil.OutputHandler() {
+				@Override
+				public void write(OutputStream out) throws IOException {
+					prop.store(out, comments);
+				}
+			}, true);
 			return true;
 		} catch (Exception e) {
 			log.error(e.getMessage());
 			return false;
-		} finally {
-			if(null != fos) {
-				try {
-					fos.close();
-				} catch (IOException e) {}
-			}
 		}
 	}
 	
 	public static Properties load(ClassLoader classLoader, String filePath) {
 		Properties prop = new Properties();
+		InputStream in = null;
 		try {
-			InputStream in = classLoader.getResourceAsStream(filePath);
+			in = classLoader.getResourceAsStream(filePath);
 			prop.load(in);
 			return prop;
 		} catch (Exception e) {
 			log.error(e.getMessage());
 			return null;
+		} finally {
+			FileUtil.close(in);
+		}
+	}
+	
+	/**
+	 * 读取属性文件
+	 * @param url 文件地址
+	 * @return 读取失败时返回null
+	 */
+	public static Properties load(URL url) {
+		Properties prop = new Properties();
+		InputStream in = null;
+		try {
+			in = url.openStream();
+			prop.load(in);
+			return prop;
+		} catch (Exception e) {
+			log.error(e.getMessage());
+			return null;
+		} finally {
+			FileUtil.close(in);
 		}
 	}
 }
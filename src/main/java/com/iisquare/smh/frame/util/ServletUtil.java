@@ -3,13 +3,19 @@ package com.iisquare.smh.frame.util;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletContext;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
+
+import com.iisquare.smh.frame.cookie.CookieCodec;
+import com.iisquare.smh.frame.cookie.RequestCookies;
+import com.iisquare.smh.frame.net.ClientIpResolver;
+import com.iisquare.smh.frame.session.FrameSession;
 
 /**
  * Servlet操作类
@@ -17,82 +23,209 @@ import javax.servlet.http.HttpSession;
 public class ServletUtil {
 	
 	public static final String cookieEncoding = "UTF-8";
+	private static volatile String webRoot, directorySeparator; // 项目所在位置及目录分隔符，启动后不再变化
+	private static final int COOKIE_DOMAIN_CACHE_SIZE = 64; // 限制缓存条数，避免伪造Host头导致缓存膨胀
+	private static final ConcurrentHashMap<String, String> cookieDomains = new ConcurrentHashMap<String, String>();
 
 	public static void addCookie(HttpServletRequest request, HttpServletResponse response, String key, String value, int maxAge) throws UnsupportedEncodingException {
-		if(null != value) value = URLEncoder.encode(value, cookieEncoding);
+		if(null != value) value = encodeCookie(value);
 		Cookie cookie = new Cookie(key, value);
-		String host = request.getHeader("host");
-		if(host.indexOf(":") > -1) {
-			host = host.split(":")[0];
-		}
-		cookie.setDomain(host);
+		String domain = getCookieDomain(request);
+		if(null != domain) cookie.setDomain(domain);
 		cookie.setPath("/");
 		cookie.setMaxAge(maxAge);
 		response.addCookie(cookie);
 	}
 	
 	public static String getCookie(HttpServletRequest request, String key) throws UnsupportedEncodingException {
-		Cookie cookies[] = request.getCookies();
-		if(null == cookies) return null;
-		for(Cookie cookie : cookies) {
-			if(key.equals(cookie.getName())) return URLDecoder.decode(cookie.getValue(), cookieEncoding);
+		String value = RequestCookies.get(request).get(key);
+		if(null == value) return null;
+		return decodeCookie(value);
+	}
+	
+	/**
+	 * 写入签名Cookie，需配置CookieCodec
+	 * @param maxAge 有效秒数，同时作为签名内的过期时间
+	 */
+	public static void addSignedCookie(HttpServletRequest request, HttpServletResponse response, String key, String value, int maxAge) {
+		CookieCodec codec = CookieCodec.getInstance();
+		if(null == codec) throw new IllegalStateException("CookieCodec is not configured");
+		Cookie cookie = new Cookie(key, codec.encode(key, value, maxAge));
+		String domain = getCookieDomain(request);
+		if(null != domain) cookie.setDomain(domain);
+		cookie.setPath("/");
+		cookie.setMaxAge(maxAge);
+		cookie.setHttpOnly(true);
+		response.addCookie(cookie);
+	}
+	
+	/**
+	 * 读取签名Cookie
+	 * @return 不存在、签名无效或已过期时返回null
+	 */
+	public static String getSignedCookie(HttpServletRequest request, String key) {
+		CookieCodec codec = CookieCodec.getInstance();
+		if(null == codec) throw new IllegalStateException("CookieCodec is not configured");
+		return codec.decode(key, RequestCookies.get(request).get(key));
+	}
+	
+	/**
+	 * 根据Host请求头获取Cookie作用域名，结果按Host缓存
+	 */
+	public static String getCookieDomain(HttpServletRequest request) {
+		String host = request.getHeader("host");
+		if(null == host) return null;
+		String domain = cookieDomains.get(host);
+		if(null != domain) return domain;
+		int index = host.startsWith("[") ? host.indexOf("]:") + 1 : host.indexOf(':'); // 兼容IPv6地址
+		domain = index > 0 ? host.substring(0, index) : host;
+		if(cookieDomains.size() < COOKIE_DOMAIN_CACHE_SIZE) cookieDomains.put(host, domain);
+		return domain;
+	}
+	
+	/**
+	 * 编码Cookie值，仅包含安全字符时直接返回
+	 */
+	public static String encodeCookie(String value) throws UnsupportedEncodingException {
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+					|| '-' == ch || '_' == ch || '.' == ch || '*' == ch) continue;
+			return URLEncoder.encode(value, cookieEncoding);
 		}
-		return null;
+		return value;
+	}
+	
+	/**
+	 * 解码Cookie值，无转义字符时直接返回
+	 */
+	public static String decodeCookie(String value) throws UnsupportedEncodingException {
+		if(-1 == value.indexOf('%') && -1 == value.indexOf('+')) return value;
+		return URLDecoder.decode(value, cookieEncoding);
 	}
 	
 	public static void setSession(HttpServletRequest request, Map<String, Object> map) {
-		HttpSession session = request.getSession();
-		for(Map.Entry<String, Object> item : map.entrySet()) {
-			session.setAttribute(item.getKey(), item.getValue());
-		}
+		FrameSession.get(request).setAll(map);
 	}
 	
 	public static void setSession(HttpServletRequest request, String key, Object value) {
-		HttpSession session = request.getSession();
-		session.setAttribute(key, value);
+		FrameSession.get(request).set(key, value);
 	}
 	
+	/**
+	 * 获取全部会话属性的副本，会话不存在时不会创建
+	 */
 	public static Map<String, Object> getSession(HttpServletRequest request) {
-		HttpSession session = request.getSession();
-		Map<String, Object> map = new HashMap<String, Object>();
-		Enumeration<String> e = session.getAttributeNames();
-		while(e.hasMoreElements()) {
-			String key = (String)e.nextElement();
-			map.put(key, session.getAttribute(key));
-		}
-		return map;
+		return new HashMap<String, Object>(FrameSession.get(request).getAll());
+	}
+	
+	/**
+	 * 获取全部会话属性的只读视图，不复制会话属性，会话不存在时不会创建
+	 */
+	public static Map<String, Object> getSessionView(HttpServletRequest request) {
+		return FrameSession.get(request).getAll();
 	}
 	
 	public static Object getSession(HttpServletRequest request, String key) {
-		HttpSession session = request.getSession();
-		return session.getAttribute(key);
+		return FrameSession.get(request).get(key);
 	}
 	
 	public static void invalidateSession(HttpServletRequest request) {
-		HttpSession session = request.getSession();
-		session.invalidate();
+		FrameSession.get(request).invalidate();
 	}
 	
 	/**
-	 * 获取客户端IP地址
+	 * 获取客户端IP地址，仅当直接连接方为可信代理时采用X-Forwarded-For等请求头
+	 * 可信代理网段通过ClientIpResolver配置
 	 */
 	public static String getRemoteAddr(HttpServletRequest request) {
-		String ip = request.getHeader("x-forwarded-for");
-		if(ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-			ip = request.getHeader("Proxy-Client-IP");
+		return ClientIpResolver.resolve(request);
+	}
+	
+	/**
+	 * 判断客户端缓存是否仍然有效，有效时设置304状态码
+	 * 同时在响应中写入ETag和Last-Modified头信息
+	 * @param etag 实体标签，为null时不参与判断
+	 * @param lastModified 最后修改时间毫秒数，小于0时不参与判断
+	 * @return 返回true时不应再输出响应内容
+	 */
+	public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String etag, long lastModified) {
+		String method = request.getMethod();
+		if(!"GET".equals(method) && !"HEAD".equals(method)) return false;
+		boolean notModified = false;
+		if(null != etag) {
+			response.setHeader("ETag", etag);
+			String ifNoneMatch = request.getHeader("If-None-Match");
+			if(null != ifNoneMatch) notModified = matchETag(ifNoneMatch, etag);
 		}
-		if(ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-			ip = request.getHeader("WL-Proxy-Client-IP");
+		if(lastModified >= 0) {
+			lastModified = lastModified / 1000 * 1000; // HTTP日期精确到秒
+			response.setDateHeader("Last-Modified", lastModified);
+			if(null == etag || null == request.getHeader("If-None-Match")) {
+				long ifModifiedSince = -1;
+				try {
+					ifModifiedSince = request.getDateHeader("If-Modified-Since");
+				} catch (IllegalArgumentException e) {}
+				notModified = ifModifiedSince >= lastModified;
+			}
 		}
-		if(ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-			ip = request.getRemoteAddr();
+		if(notModified) response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		return notModified;
+	}
+	
+	/**
+	 * 判断If-None-Match中是否包含指定的实体标签，采用弱比较方式
+	 * @param ifNoneMatch 请求头信息
+	 * @param etag 实体标签
+	 * @return
+	 */
+	public static boolean matchETag(String ifNoneMatch, String etag) {
+		String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String item : ifNoneMatch.split(",")) {
+			item = item.trim();
+			if("*".equals(item)) return true;
+			if(item.startsWith("W/")) item = item.substring(2);
+			if(item.equals(opaque)) return true;
 		}
-		return ip;
+		return false;
+	}
+	
+	/**
+	 * 根据输出内容生成强实体标签
+	 * @param content 输出内容
+	 * @return
+	 */
+	public static String strongETag(String content) {
+		return "\"" + DPUtil.MD5(content) + "\"";
+	}
+	
+	/**
+	 * 根据版本标识生成弱实体标签
+	 * @param version 版本标识
+	 * @return
+	 */
+	public static String weakETag(String version) {
+		return "W/\"" + DPUtil.MD5(version) + "\"";
 	}
 	
 	public static String getWebRoot(HttpServletRequest request) {
-		String webRoot = request.getServletContext().getRealPath("/");
-		return webRoot.substring(0, webRoot.length() - 1);
+		return getWebRoot(request.getServletContext());
+	}
+	
+	/**
+	 * 获取项目所在位置，仅在首次调用时计算
+	 * @param servletContext
+	 * @return
+	 */
+	public static String getWebRoot(ServletContext servletContext) {
+		String root = webRoot;
+		if(null != root) return root;
+		root = servletContext.getRealPath("/");
+		if(null == root) return null;
+		if(root.endsWith("/") || root.endsWith("\\")) root = root.substring(0, root.length() - 1);
+		directorySeparator = root.startsWith("/") ? "/" : "\\";
+		webRoot = root;
+		return root;
 	}
 	
 	public static String getWebUrl(HttpServletRequest request) {
@@ -108,8 +241,7 @@ public class ServletUtil {
 	}
 	
 	public static String getDirectorySeparator(HttpServletRequest request) {
-		String webRoot = getWebRoot(request);
-		if(webRoot.startsWith("/")) return "/";
-		return "\\";
+		if(null == directorySeparator) getWebRoot(request);
+		return directorySeparator;
 	}
 }
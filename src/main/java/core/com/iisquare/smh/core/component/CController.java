@@ -7,7 +7,7 @@ import com.iisquare.smh.frame.springmvc.ControllerBase;
 
 public class CController extends ControllerBase {
 	/**
-	 * 返回JSON信息，可根据需要拓展XML等格式
+	 * 返回JSON信息，客户端可通过Accept请求头获取MessagePack、CBOR等格式
 	 * @param status 状态码，根据内部规范自定义
 	 * 		小于0 - 正常返回的具体状态码
 	 * 		等于0 - 返回正常
@@ -1,5 +1,7 @@
 package com.iisquare.smh.action.index;
 
+import java.util.concurrent.Callable;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Controller;
@@ -7,6 +9,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 
 import com.iisquare.smh.core.component.CController;
 import com.iisquare.smh.domain.index.Test;
+import com.iisquare.smh.frame.springmvc.OutputCache;
+import com.iisquare.smh.frame.springmvc.RateLimit;
 import com.iisquare.smh.service.index.TestService;
 
 /**
@@ -27,7 +31,8 @@ public class IndexController extends CController {
 		return displayTemplate();
 	}
 	
-	/* FreeMarker视图模板示例 */
+	/* FreeMarker视图模板示例，页面输出缓存60秒 */
+	@OutputCache(ttl = 60)
 	public String templateAction() throws Exception {
 		assign("hw", "Hello World!");
 		return displayTemplate();
@@ -44,6 +49,17 @@ public class IndexController extends CController {
 		return displayJSON();
 	}
 	
+	/* 异步执行示例，耗时操作在线程池中执行，释放容器线程 */
+	public Callable<String> asyncAction() throws Exception {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				assign("hw", "Hello Async!");
+				return displayJSON();
+			}
+		};
+	}
+	
 	/* 跳转示例 */
 	public String redirectAction() throws Exception {
 		assign("hw", "Hello World!");
@@ -69,7 +85,7 @@ public class IndexController extends CController {
 		return displayJSON();
 	}
 	
-	/* 数据库操作示例 */
+	/* 数据库操作示例，Test实体未变更时返回304，条件请求需执行Action，因此不采用整页输出缓存 */
 	public String serviceAction() throws Exception {
 		/*Test test = testService.getById(2);
 		if(null != test) {
@@ -79,11 +95,13 @@ public class IndexController extends CController {
 		return displayJSON();*/
 		/*assign("tests", testService.getList());
 		return displayTemplate();*/
+		if(checkNotModified(testService.version())) return displayNotModified(); // 数据未变化时返回304
 		assign("tests", testService.getListByIds("2"));
 		return displayTemplate();
 	}
 	
-	/* 数据统计查询示例 */
+	/* 数据统计查询示例，限制每秒10次请求及最多5个并发 */
+	@RateLimit(permitsPerSecond = 10, burst = 20, maxConcurrent = 5)
 	public String accountAction() throws Exception {
 		assign("hql", testService.account());
 		return displayJSON();
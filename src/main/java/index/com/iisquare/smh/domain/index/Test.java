@@ -6,6 +6,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Version;
 
 import org.hibernate.annotations.DynamicInsert;
 import org.hibernate.annotations.DynamicUpdate;
@@ -26,6 +27,8 @@ public class Test {
 	@JoinColumn(name = "parentId")
 	private Test parent;
 	private String name;
+	@Version
+	private Integer version; // 版本号，每次更新时递增
 	
 	public Integer getId() {
 		return id;
@@ -51,6 +54,14 @@ public class Test {
 		this.name = name;
 	}
 	
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+	
 	public Test() {
 		
 	}
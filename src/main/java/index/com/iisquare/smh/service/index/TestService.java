@@ -33,6 +33,10 @@ public class TestService {
 		return testDao.createQuery(hql, null).uniqueResult();
 	}
 	
+	public String version() {
+		return testDao.queryVersion();
+	}
+	
 	public String conflict() {
 		return "I'm in index module.";
 	}
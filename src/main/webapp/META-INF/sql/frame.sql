@@ -23,13 +23,14 @@ CREATE TABLE `smh_test` (
   `id` int(11) NOT NULL AUTO_INCREMENT,
   `parent_id` int(11) DEFAULT NULL,
   `name` varchar(255) NOT NULL DEFAULT '',
+  `version` int(11) NOT NULL DEFAULT '0',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8;
 
 -- ----------------------------
 -- Records of smh_test
 -- ----------------------------
-INSERT INTO `smh_test` VALUES ('1', null, '根节点');
-INSERT INTO `smh_test` VALUES ('2', '1', '子节点');
-INSERT INTO `smh_test` VALUES ('3', '2', '下级节点');
-INSERT INTO `smh_test` VALUES ('4', '2', '下级节点');
+INSERT INTO `smh_test` VALUES ('1', null, '根节点', '0');
+INSERT INTO `smh_test` VALUES ('2', '1', '子节点', '0');
+INSERT INTO `smh_test` VALUES ('3', '2', '下级节点', '0');
+INSERT INTO `smh_test` VALUES ('4', '2', '下级节点', '0');
@@ -0,0 +1,146 @@
+package com.iisquare.smh.test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.json.JSONObject;
+
+import com.iisquare.smh.frame.util.CloneUtil;
+
+/**
+ * 对象复制基准测试，对比原JSON序列化再解析的实现
+ * 运行方式：直接执行main方法，可通过参数指定轮数及每轮次数
+ */
+public class CloneBenchmark {
+
+	public static class Item {
+		private int id;
+		private String name;
+		private double price;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public void setPrice(double price) {
+			this.price = price;
+		}
+	}
+
+	public static class Order {
+		private long id;
+		private String title;
+		private Date created;
+		private List<Item> items = new ArrayList<Item>();
+		private Map<String, Object> extra = new LinkedHashMap<String, Object>();
+
+		public long getId() {
+			return id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public Date getCreated() {
+			return created;
+		}
+
+		public void setCreated(Date created) {
+			this.created = created;
+		}
+
+		public List<Item> getItems() {
+			return items;
+		}
+
+		public void setItems(List<Item> items) {
+			this.items = items;
+		}
+
+		public Map<String, Object> getExtra() {
+			return extra;
+		}
+
+		public void setExtra(Map<String, Object> extra) {
+			this.extra = extra;
+		}
+	}
+
+	static Order sample() {
+		Order order = new Order();
+		order.setId(9007199254740993L);
+		order.setTitle("order");
+		order.setCreated(new Date());
+		for (int i = 0; i < 10; i++) {
+			Item item = new Item();
+			item.setId(i);
+			item.setName("item" + i);
+			item.setPrice(i * 1.5);
+			order.getItems().add(item);
+		}
+		order.getExtra().put("remark", "benchmark");
+		order.getExtra().put("count", 10);
+		return order;
+	}
+
+	/**
+	 * 原实现：转换为JSON字符串后再解析为Bean
+	 */
+	static Object jsonClone(Object object) {
+		JSONObject json = JSONObject.fromObject(JSONObject.fromObject(object).toString());
+		return JSONObject.toBean(json, object.getClass());
+	}
+
+	public static void main(String[] args) {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		Order order = sample();
+		Order copy = CloneUtil.deepClone(order);
+		System.out.println("deep clone keeps types: " + (copy.getItems().get(0) instanceof Item)
+				+ ", id " + copy.getId() + ", shares items: " + (copy.getItems() == order.getItems()));
+		long blackhole = 0;
+		for (int round = 0; round <= rounds; round++) { // 第0轮用于预热
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++) blackhole += jsonClone(order).hashCode();
+			long json = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++) blackhole += CloneUtil.deepClone(order).hashCode();
+			long deep = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++) blackhole += CloneUtil.shallowClone(order).hashCode();
+			long shallow = System.nanoTime() - start;
+			if(0 == round) continue;
+			System.out.println("round " + round + ": json " + json / count + "ns/op"
+					+ ", deep " + deep / count + "ns/op" + ", shallow " + shallow / count + "ns/op");
+		}
+		System.out.println("blackhole " + blackhole);
+	}
+}
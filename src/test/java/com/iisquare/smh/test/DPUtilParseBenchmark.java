@@ -0,0 +1,83 @@
+package com.iisquare.smh.test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.iisquare.smh.frame.util.DPUtil;
+
+/**
+ * DPUtil数值解析基准测试，对比原正则实现
+ * 运行方式：直接执行main方法，可通过参数指定轮数及每轮次数
+ */
+public class DPUtilParseBenchmark {
+
+	private static final Object[] INPUTS = {
+		"12", "1024", "-35", "3.1415", "9007199254740993", "  42", "7abc", "0.5",
+		Integer.valueOf(128), Long.valueOf(4096L), "123456789", "-0.25"
+	};
+
+	/**
+	 * 原实现：每次编译正则后截取数字部分，再经由double转换
+	 */
+	static double regexParseDouble(Object object) {
+		if(null == object) return 0.0;
+		String str = object.toString();
+		if("".equals(str)) return 0.0;
+		Pattern pattern = Pattern.compile(DPUtil.regexDouble);
+		Matcher matcher = pattern.matcher(str);
+		if(!matcher.find()) return 0.0; // 原实现此处抛出NullPointerException
+		return Double.parseDouble(matcher.group());
+	}
+
+	static long regexParseLong(Object object) {
+		return (long) regexParseDouble(object);
+	}
+
+	static long runRegex(int count) {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += regexParseLong(INPUTS[i % INPUTS.length]);
+		}
+		return sum;
+	}
+
+	static long runScanner(int count) {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += DPUtil.parseLong(INPUTS[i % INPUTS.length]);
+		}
+		return sum;
+	}
+
+	static double runScannerDouble(int count) {
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += DPUtil.parseDouble(INPUTS[i % INPUTS.length]);
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		System.out.println("9007199254740993 -> regex:" + regexParseLong("9007199254740993")
+				+ ", scanner:" + DPUtil.parseLong("9007199254740993"));
+		long blackhole = 0;
+		for (int round = 0; round <= rounds; round++) { // 第0轮用于预热
+			long start = System.nanoTime();
+			blackhole += runRegex(count);
+			long regex = System.nanoTime() - start;
+			start = System.nanoTime();
+			blackhole += runScanner(count);
+			long scanner = System.nanoTime() - start;
+			start = System.nanoTime();
+			blackhole += (long) runScannerDouble(count);
+			long scannerDouble = System.nanoTime() - start;
+			if(0 == round) continue;
+			System.out.println("round " + round + ": regex parseLong " + regex / count + "ns/op"
+					+ ", scanner parseLong " + scanner / count + "ns/op"
+					+ ", scanner parseDouble " + scannerDouble / count + "ns/op");
+		}
+		System.out.println("blackhole " + blackhole);
+	}
+}